@@ -0,0 +1,263 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.access;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Interceptor limiting the requests sent to an API server. It combines
+ *
+ * <ul>
+ *     <li>a rate limiter allowing a number of requests per second with some burst</li>
+ *     <li>an adaptive limit for concurrent requests which grows with every answered request and which is halved
+ *     when the server is throttling (HTTP 429) or failing (HTTP 5xx). Connection failures on the client side
+ *     don't change the limit.</li>
+ *     <li>retries for throttled requests, honoring the <code>Retry-After</code> header</li>
+ * </ul>
+ *
+ * Long running requests like watches or followed logs are rate limited but don't take part in the concurrency
+ * limit.
+ *
+ * @since 17/10/26
+ */
+public class ApiRequestLimiter implements Interceptor {
+
+    // Concurrency limit to start with
+    private static final int INITIAL_CONCURRENCY = 4;
+
+    // Backoff for retries without Retry-After header
+    private static final long INITIAL_BACKOFF_MILLIS = 500;
+    private static final long MAX_RETRY_DELAY_MILLIS = 60000;
+
+    private Settings settings;
+
+    // Rate limiting: time when the next request may be sent
+    private long nextPermitNanos = System.nanoTime();
+
+    // Adaptive concurrency
+    private double concurrencyLimit;
+    private int inFlight;
+
+    public ApiRequestLimiter(Settings settings) {
+        configure(settings);
+    }
+
+    /**
+     * Update the settings
+     *
+     * @param settings new settings
+     */
+    public synchronized void configure(Settings settings) {
+        if (settings.equals(this.settings)) {
+            return;
+        }
+        this.settings = settings;
+        this.concurrencyLimit = settings.maxConcurrentRequests > 0 ?
+            Math.min(INITIAL_CONCURRENCY, settings.maxConcurrentRequests) : Double.MAX_VALUE;
+        notifyAll();
+    }
+
+    /**
+     * @return current limit for concurrent requests, rounded down
+     */
+    public synchronized int getConcurrencyLimit() {
+        return (int) Math.min(concurrencyLimit, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        boolean longRunning = isLongRunning(request);
+        for (int attempt = 0; ; attempt++) {
+            waitForRatePermit();
+            if (!longRunning) {
+                acquireConcurrencySlot();
+            }
+            Response response;
+            try {
+                response = chain.proceed(request);
+            } catch (IOException exp) {
+                if (!longRunning) {
+                    releaseConcurrencySlot(Outcome.FAILED);
+                }
+                throw exp;
+            }
+            int code = response.code();
+            if (!longRunning) {
+                releaseConcurrencySlot(code == 429 || code >= 500 ? Outcome.OVERLOADED : Outcome.ANSWERED);
+            }
+            Long delay = getRetryDelay(response, attempt);
+            if (delay == null) {
+                return response;
+            }
+            response.close();
+            sleep(delay);
+        }
+    }
+
+    // Delay in milliseconds before retrying or null if the response should be returned as it is
+    Long getRetryDelay(Response response, int attempt) {
+        int code = response.code();
+        String retryAfter = response.header("Retry-After");
+        if (attempt >= getSettings().maxRetries || !(code == 429 || (code == 503 && retryAfter != null))) {
+            return null;
+        }
+        if (retryAfter != null) {
+            try {
+                return Math.min(TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim())), MAX_RETRY_DELAY_MILLIS);
+            } catch (NumberFormatException exp) {
+                // HTTP date, fall back to exponential backoff
+            }
+        }
+        return Math.min(INITIAL_BACKOFF_MILLIS << attempt, MAX_RETRY_DELAY_MILLIS);
+    }
+
+    private synchronized Settings getSettings() {
+        return settings;
+    }
+
+    private void waitForRatePermit() throws IOException {
+        long waitNanos;
+        synchronized (this) {
+            if (settings.requestsPerSecond <= 0) {
+                return;
+            }
+            long interval = (long) (TimeUnit.SECONDS.toNanos(1) / settings.requestsPerSecond);
+            long now = System.nanoTime();
+            // Unused permits are kept up to the burst size
+            long earliest = now - interval * Math.max(settings.burst - 1, 0);
+            if (nextPermitNanos - earliest < 0) {
+                nextPermitNanos = earliest;
+            }
+            waitNanos = nextPermitNanos - now;
+            nextPermitNanos += interval;
+        }
+        if (waitNanos > 0) {
+            sleep(TimeUnit.NANOSECONDS.toMillis(waitNanos));
+        }
+    }
+
+    private synchronized void acquireConcurrencySlot() throws IOException {
+        try {
+            while (inFlight >= Math.max(1, (int) concurrencyLimit)) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a free request slot");
+        }
+        inFlight++;
+    }
+
+    synchronized void releaseConcurrencySlot(Outcome outcome) {
+        inFlight--;
+        int max = settings.maxConcurrentRequests;
+        if (max > 0) {
+            if (outcome == Outcome.ANSWERED) {
+                // Additive increase, by one per round of requests at the current limit
+                concurrencyLimit = Math.min(max, concurrencyLimit + 1 / concurrencyLimit);
+            } else if (outcome == Outcome.OVERLOADED) {
+                // Multiplicative decrease
+                concurrencyLimit = Math.max(1, concurrencyLimit / 2);
+            }
+        }
+        notifyAll();
+    }
+
+    // Watches and followed logs keep the connection open
+    private boolean isLongRunning(Request request) {
+        return "true".equals(request.url().queryParameter("watch")) ||
+               "true".equals(request.url().queryParameter("follow")) ||
+               request.header("Upgrade") != null;
+    }
+
+    private void sleep(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to send a request");
+        }
+    }
+
+    // How a request ended, as far as the concurrency limit is concerned
+    enum Outcome {
+        // Answered by the server without signs of overload
+        ANSWERED,
+        // Throttled or failed by the server
+        OVERLOADED,
+        // Failed on the client side without an answer, e.g. because the connection broke
+        FAILED
+    }
+
+    /**
+     * Settings for limiting requests
+     */
+    public static class Settings {
+
+        private final double requestsPerSecond;
+        private final int burst;
+        private final int maxConcurrentRequests;
+        private final int maxRetries;
+
+        /**
+         * @param requestsPerSecond maximum rate of requests, a value &lt;= 0 disables rate limiting
+         * @param burst number of requests which can be sent at once after a period of inactivity
+         * @param maxConcurrentRequests upper bound for the adaptive concurrency limit, a value &lt;= 0 disables it
+         * @param maxRetries how often a throttled request is retried
+         */
+        public Settings(double requestsPerSecond, int burst, int maxConcurrentRequests, int maxRetries) {
+            this.requestsPerSecond = requestsPerSecond;
+            this.burst = burst;
+            this.maxConcurrentRequests = maxConcurrentRequests;
+            this.maxRetries = maxRetries;
+        }
+
+        /**
+         * @return settings which don't limit requests at all and don't retry
+         */
+        public static Settings unlimited() {
+            return new Settings(0, 0, 0, 0);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Settings that = (Settings) o;
+            return Double.compare(that.requestsPerSecond, requestsPerSecond) == 0 &&
+                   burst == that.burst &&
+                   maxConcurrentRequests == that.maxConcurrentRequests &&
+                   maxRetries == that.maxRetries;
+        }
+
+        @Override
+        public int hashCode() {
+            long bits = Double.doubleToLongBits(requestsPerSecond);
+            int result = (int) (bits ^ (bits >>> 32));
+            result = 31 * result + burst;
+            result = 31 * result + maxConcurrentRequests;
+            result = 31 * result + maxRetries;
+            return result;
+        }
+    }
+}
@@ -16,16 +16,25 @@
 
 package io.fabric8.maven.core.access;
 
+import java.io.File;
+import java.io.IOException;
 import java.net.UnknownHostException;
+import java.util.List;
 
 import io.fabric8.kubernetes.api.KubernetesHelper;
 import io.fabric8.kubernetes.client.*;
 import io.fabric8.maven.core.config.PlatformMode;
 import io.fabric8.maven.docker.util.Logger;
-import io.fabric8.openshift.client.DefaultOpenShiftClient;
 import io.fabric8.openshift.client.OpenShiftAPIGroups;
 import io.fabric8.openshift.client.OpenShiftClient;
 import io.fabric8.utils.Strings;
+import io.fabric8.utils.URLUtils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
 
 import static io.fabric8.kubernetes.api.KubernetesHelper.DEFAULT_NAMESPACE;
 
@@ -35,6 +44,9 @@ import static io.fabric8.kubernetes.api.KubernetesHelper.DEFAULT_NAMESPACE;
  */
 public class ClusterAccess {
 
+    // Cluster capabilities, shared by all instances
+    private static final ClusterCapabilityCache CAPABILITY_CACHE = new ClusterCapabilityCache();
+
     private String namespace;
 
     public ClusterAccess(String namespace) {
@@ -56,12 +68,26 @@ public class ClusterAccess {
         return createKubernetesClient();
     }
 
+    /**
+     * Create a client which shares its connections with all other clients for the same connection settings and
+     * namespace. Closing the client releases it, but keeps the connections open for reuse. A client created
+     * within a {@link KubernetesClientPool.Scope} is released when the scope is closed.
+     *
+     * @return kubernetes client
+     */
     public KubernetesClient createKubernetesClient() {
-        return new DefaultKubernetesClient(createDefaultConfig());
+        return KubernetesClientPool.getInstance().acquireKubernetesClient(createDefaultConfig());
     }
 
+    /**
+     * Create an OpenShift client which shares its connections with all other clients for the same connection
+     * settings and namespace. Like {@link #createKubernetesClient()}, it is released when closed or together with
+     * its {@link KubernetesClientPool.Scope}.
+     *
+     * @return OpenShift client
+     */
     public OpenShiftClient createOpenShiftClient() {
-        return new DefaultOpenShiftClient(createDefaultConfig());
+        return KubernetesClientPool.getInstance().acquireOpenShiftClient(createDefaultConfig());
     }
 
     // ============================================================================
@@ -78,24 +104,86 @@ public class ClusterAccess {
      * or supports the new <code>/apis/image.openshift.io</code> API Group
      */
     public boolean isOpenShiftImageStream(Logger log) {
-        if (isOpenShift(log)) {
-            OpenShiftClient openShiftClient = createOpenShiftClient();
-            return openShiftClient.supportsOpenShiftAPIGroup(OpenShiftAPIGroups.IMAGE);
-        }
-        return false;
+        return getCapabilities(log).isOpenShiftImageStream();
     }
 
     public boolean isOpenShift(Logger log) {
-        try {
-            return KubernetesHelper.isOpenShift(createKubernetesClient());
+        return getCapabilities(log).isOpenShift();
+    }
+
+    /**
+     * Get the capabilities of the cluster. They are detected only once per master URL and user
+     * and cached afterwards.
+     *
+     * @param log logger to use
+     * @return capabilities of the cluster. If the cluster can't be accessed, it's treated as Kubernetes cluster.
+     */
+    public ClusterCapabilities getCapabilities(Logger log) {
+        Config config = createDefaultConfig();
+        String key = ClusterCapabilityCache.createKey(config);
+        ClusterCapabilities capabilities = CAPABILITY_CACHE.get(key);
+        if (capabilities == null) {
+            capabilities = detectCapabilities(config, log);
+            try {
+                CAPABILITY_CACHE.put(key, capabilities);
+            } catch (IOException e) {
+                log.warn("Cannot store cluster capabilities: %s", e.getMessage());
+            }
+        }
+        return capabilities;
+    }
+
+    /**
+     * Configure the cache file for cluster capabilities, so that capabilities can be reused across builds.
+     *
+     * @param cacheFile file to store capabilities in
+     * @param ttlSeconds time in seconds for which stored capabilities are valid. A value &lt;= 0 disables the cache file.
+     */
+    public static void configureCapabilityCache(File cacheFile, long ttlSeconds) {
+        CAPABILITY_CACHE.configure(cacheFile, ttlSeconds);
+    }
+
+    /**
+     * Configure how requests of all clients are limited
+     *
+     * @param requestsPerSecond maximum rate of requests per API server, a value &lt;= 0 disables rate limiting
+     * @param burst number of requests which can be sent at once after a period of inactivity
+     * @param maxConcurrentRequests upper bound for the adaptive limit of concurrent requests, a value &lt;= 0 disables it
+     * @param maxRetries how often a request throttled by the API server is retried
+     */
+    public static void configureRequestLimits(double requestsPerSecond, int burst, int maxConcurrentRequests, int maxRetries) {
+        KubernetesClientPool.getInstance().configureRequestLimits(
+            new ApiRequestLimiter.Settings(requestsPerSecond, burst, maxConcurrentRequests, maxRetries));
+    }
+
+    // Detect all capabilities with a single client
+    private ClusterCapabilities detectCapabilities(Config config, Logger log) {
+        try (KubernetesClient client = KubernetesClientPool.getInstance().acquireKubernetesClient(config)) {
+            boolean openShift = KubernetesHelper.isOpenShift(client);
+            List<String> apiPaths = client.rootPaths().getPaths();
+            boolean imageStream = openShift && apiPaths != null && apiPaths.contains("/apis/" + OpenShiftAPIGroups.IMAGE);
+            return new ClusterCapabilities(openShift, imageStream, apiPaths, getServerVersion(client, log));
         } catch (KubernetesClientException exp) {
             Throwable cause = exp.getCause();
             String prefix = cause instanceof UnknownHostException ? "Unknown host " : "";
             log.warn("Cannot access cluster for detecting mode: %s%s",
                      prefix,
                      cause != null ? cause.getMessage() : exp.getMessage());
-            return false;
+            return ClusterCapabilities.unreachable();
+        }
+    }
+
+    private String getServerVersion(KubernetesClient client, Logger log) {
+        Request request = new Request.Builder().get().url(URLUtils.pathJoin(client.getMasterUrl().toString(), "version")).build();
+        try (Response response = client.adapt(OkHttpClient.class).newCall(request).execute()) {
+            if (response.isSuccessful()) {
+                JsonNode version = new ObjectMapper().readTree(response.body().byteStream());
+                return version.path("gitVersion").asText(null);
+            }
+        } catch (IOException e) {
+            log.debug("Cannot read server version: %s", e.getMessage());
         }
+        return null;
     }
 
     public PlatformMode resolvePlatformMode(PlatformMode mode, Logger log) {
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.access;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Capabilities of a cluster as detected via its discovery endpoints
+ *
+ * @since 17/10/26
+ */
+public class ClusterCapabilities {
+
+    private final boolean reachable;
+    private final boolean openShift;
+    private final boolean openShiftImageStream;
+    private final List<String> apiPaths;
+    private final String serverVersion;
+    private final long timestamp;
+
+    public ClusterCapabilities(boolean openShift, boolean openShiftImageStream, List<String> apiPaths, String serverVersion) {
+        this(true, openShift, openShiftImageStream, apiPaths, serverVersion, System.currentTimeMillis());
+    }
+
+    private ClusterCapabilities(boolean reachable, boolean openShift, boolean openShiftImageStream,
+                                List<String> apiPaths, String serverVersion, long timestamp) {
+        this.reachable = reachable;
+        this.openShift = openShift;
+        this.openShiftImageStream = openShiftImageStream;
+        this.apiPaths = apiPaths != null ?
+            Collections.unmodifiableList(new ArrayList<>(apiPaths)) :
+            Collections.<String>emptyList();
+        this.serverVersion = serverVersion;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Capabilities of a cluster which couldn't be accessed. Such a cluster is treated as plain Kubernetes cluster.
+     *
+     * @return capabilities of a cluster which is not reachable
+     */
+    public static ClusterCapabilities unreachable() {
+        return new ClusterCapabilities(false, false, false, null, null, System.currentTimeMillis());
+    }
+
+    public boolean isReachable() {
+        return reachable;
+    }
+
+    /**
+     * @return true if the cluster supports the <code>/oapi</code> OpenShift REST API
+     */
+    public boolean isOpenShift() {
+        return openShift;
+    }
+
+    /**
+     * @return true if this is an OpenShift cluster supporting the <code>image.openshift.io</code> API group
+     */
+    public boolean isOpenShiftImageStream() {
+        return openShiftImageStream;
+    }
+
+    /**
+     * @return root paths as returned by the API server, including all API groups
+     */
+    public List<String> getApiPaths() {
+        return apiPaths;
+    }
+
+    /**
+     * @return version of the API server or <code>null</code> if not known
+     */
+    public String getServerVersion() {
+        return serverVersion;
+    }
+
+    /**
+     * @return time in milliseconds when the capabilities have been detected
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    // Store into properties, all keys prefixed with the given prefix
+    void store(Properties props, String prefix) {
+        props.setProperty(prefix + "openShift", Boolean.toString(openShift));
+        props.setProperty(prefix + "openShiftImageStream", Boolean.toString(openShiftImageStream));
+        props.setProperty(prefix + "apiPaths", StringUtils.join(apiPaths, ","));
+        if (serverVersion != null) {
+            props.setProperty(prefix + "serverVersion", serverVersion);
+        }
+        props.setProperty(prefix + "timestamp", Long.toString(timestamp));
+    }
+
+    // Read from properties as stored with store(), null if not contained
+    static ClusterCapabilities load(Properties props, String prefix) {
+        String timestamp = props.getProperty(prefix + "timestamp");
+        if (timestamp == null) {
+            return null;
+        }
+        String apiPaths = props.getProperty(prefix + "apiPaths", "");
+        try {
+            return new ClusterCapabilities(true,
+                                           Boolean.parseBoolean(props.getProperty(prefix + "openShift")),
+                                           Boolean.parseBoolean(props.getProperty(prefix + "openShiftImageStream")),
+                                           apiPaths.isEmpty() ? null : Arrays.asList(apiPaths.split(",")),
+                                           props.getProperty(prefix + "serverVersion"),
+                                           Long.parseLong(timestamp));
+        } catch (NumberFormatException exp) {
+            return null;
+        }
+    }
+}
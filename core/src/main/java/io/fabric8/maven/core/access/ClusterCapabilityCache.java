@@ -0,0 +1,177 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.access;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.fabric8.kubernetes.client.Config;
+import io.fabric8.maven.core.util.ResourceCache;
+
+/**
+ * Cache for detected {@link ClusterCapabilities}, keyed by master URL and user. Capabilities are kept in memory for
+ * the whole build. Optionally, they are also stored in a file and reused by later builds until a time to live expires.
+ *
+ * An unreachable cluster is only remembered for a few seconds, so that a transient connection failure doesn't
+ * affect the rest of the build.
+ *
+ * @since 17/10/26
+ */
+public class ClusterCapabilityCache {
+
+    private static final long UNREACHABLE_TTL_MILLIS = 5000;
+
+    private final Map<String, ClusterCapabilities> memoryCache = new ConcurrentHashMap<>();
+    // Time in millis when unreachable entries expire
+    private final Map<String, Long> unreachableExpiry = new ConcurrentHashMap<>();
+    private volatile long unreachableTtlMillis = UNREACHABLE_TTL_MILLIS;
+
+    private volatile File cacheFile;
+    private volatile long ttlMillis;
+
+    /**
+     * Configure the cache file
+     *
+     * @param cacheFile file to store capabilities in or <code>null</code> if only the in-memory cache should be used
+     * @param ttlSeconds time to live in seconds for entries read from the cache file. A value &lt;= 0 disables the
+     *                   cache file.
+     */
+    public void configure(File cacheFile, long ttlSeconds) {
+        this.cacheFile = ttlSeconds > 0 ? cacheFile : null;
+        this.ttlMillis = ttlSeconds * 1000;
+    }
+
+    /**
+     * Lookup capabilities
+     *
+     * @param key key as created by {@link #createKey(Config)}
+     * @return capabilities or <code>null</code> if not cached
+     */
+    public ClusterCapabilities get(String key) {
+        ClusterCapabilities ret = memoryCache.get(key);
+        if (ret != null && !ret.isReachable()) {
+            Long expiry = unreachableExpiry.get(key);
+            if (expiry == null || System.currentTimeMillis() >= expiry) {
+                memoryCache.remove(key);
+                unreachableExpiry.remove(key);
+                ret = null;
+            }
+        }
+        if (ret == null) {
+            ret = readFromFile(key);
+            if (ret != null) {
+                memoryCache.put(key, ret);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Store capabilities. Capabilities of an unreachable cluster are only kept in memory for a few seconds.
+     *
+     * @param key key as created by {@link #createKey(Config)}
+     * @param capabilities capabilities to store
+     */
+    public void put(String key, ClusterCapabilities capabilities) throws IOException {
+        if (capabilities.isReachable()) {
+            unreachableExpiry.remove(key);
+            memoryCache.put(key, capabilities);
+            writeToFile(key, capabilities);
+        } else {
+            unreachableExpiry.put(key, System.currentTimeMillis() + unreachableTtlMillis);
+            memoryCache.put(key, capabilities);
+        }
+    }
+
+    // For tests
+    void setUnreachableTtlMillis(long unreachableTtlMillis) {
+        this.unreachableTtlMillis = unreachableTtlMillis;
+    }
+
+    /**
+     * Remove all cached capabilities from memory
+     */
+    public void clear() {
+        memoryCache.clear();
+        unreachableExpiry.clear();
+    }
+
+    /**
+     * Create the cache key for a client configuration. Credentials are only included as hash.
+     *
+     * @param config client configuration
+     * @return key identifying master URL and user
+     */
+    public static String createKey(Config config) {
+        String user = config.getUsername();
+        if (user == null && config.getOauthToken() != null) {
+            user = "token:" + new ResourceCache.Fingerprint().add("token", config.getOauthToken()).getHash();
+        }
+        return new ResourceCache.Fingerprint()
+            .add("masterUrl", config.getMasterUrl())
+            .add("user", user)
+            .getHash();
+    }
+
+    // ============================================================================
+
+    private synchronized ClusterCapabilities readFromFile(String key) {
+        File file = cacheFile;
+        if (file == null || !file.exists()) {
+            return null;
+        }
+        try {
+            ClusterCapabilities ret = ClusterCapabilities.load(loadProperties(file), key + ".");
+            if (ret != null && System.currentTimeMillis() - ret.getTimestamp() < ttlMillis) {
+                return ret;
+            }
+        } catch (IOException e) {
+            // Ignore an unreadable cache file, the capabilities are detected again
+        }
+        return null;
+    }
+
+    private synchronized void writeToFile(String key, ClusterCapabilities capabilities) throws IOException {
+        File file = cacheFile;
+        if (file == null) {
+            return;
+        }
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create directory " + dir);
+        }
+        Properties props = file.exists() ? loadProperties(file) : new Properties();
+        capabilities.store(props, key + ".");
+        try (OutputStream os = new FileOutputStream(file)) {
+            props.store(os, "fabric8 cluster capabilities");
+        }
+    }
+
+    private Properties loadProperties(File file) throws IOException {
+        Properties props = new Properties();
+        try (InputStream is = new FileInputStream(file)) {
+            props.load(is);
+        }
+        return props;
+    }
+}
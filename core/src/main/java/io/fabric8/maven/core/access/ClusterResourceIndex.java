@@ -0,0 +1,217 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.access;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import io.fabric8.kubernetes.api.KubernetesHelper;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesResourceList;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.dsl.MixedOperation;
+import io.fabric8.maven.core.util.KindAndName;
+import io.fabric8.maven.docker.util.Logger;
+import io.fabric8.openshift.client.OpenShiftClient;
+
+/**
+ * Index of the resources living in a namespace, looked up by kind and name. The index is filled with a
+ * single LIST request per kind instead of a GET request for every single resource. The index is a snapshot
+ * and is not updated when resources are changed afterwards.
+ *
+ * Only kinds which could be listed are indexed. For all other kinds {@link #isIndexed(String)} returns false
+ * and the live state is unknown.
+ *
+ * @since 17/10/26
+ */
+public class ClusterResourceIndex {
+
+    private final String namespace;
+    private final Map<KindAndName, HasMetadata> resources = new HashMap<>();
+    private final Map<String, List<HasMetadata>> resourcesByKind = new HashMap<>();
+
+    public ClusterResourceIndex(String namespace) {
+        this.namespace = namespace;
+    }
+
+    /**
+     * Create an index for the given kinds
+     *
+     * @param client client to use for listing
+     * @param namespace namespace to list the resources in
+     * @param kinds kinds to index, e.g. as collected by {@link #getKinds(Collection)}
+     * @param log logger for reporting kinds which can't be listed
+     * @return the filled index
+     */
+    public static ClusterResourceIndex load(KubernetesClient client, String namespace, Collection<String> kinds, Logger log) {
+        ClusterResourceIndex index = new ClusterResourceIndex(namespace);
+        for (String kind : kinds) {
+            MixedOperation<?, ?, ?, ?> operation = getOperation(client, kind);
+            if (operation == null) {
+                continue;
+            }
+            try {
+                KubernetesResourceList<?> list = (KubernetesResourceList<?>) operation.inNamespace(namespace).list();
+                index.addAll(kind, list);
+            } catch (KubernetesClientException exp) {
+                log.debug("Cannot list %s in namespace %s: %s", kind, namespace, exp.getMessage());
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Get the kinds of the given resources
+     *
+     * @param entities resources to examine
+     * @return kinds in the order of their first occurence
+     */
+    public static Set<String> getKinds(Collection<HasMetadata> entities) {
+        Set<String> kinds = new LinkedHashSet<>();
+        for (HasMetadata entity : entities) {
+            if (entity != null) {
+                kinds.add(KubernetesHelper.getKind(entity));
+            }
+        }
+        return kinds;
+    }
+
+    /**
+     * Add the items of a list of the given kind
+     *
+     * @param kind kind of the items
+     * @param list list as returned by the API server, can be <code>null</code>
+     */
+    public void addAll(String kind, KubernetesResourceList<?> list) {
+        List<HasMetadata> items = new ArrayList<>();
+        if (list != null && list.getItems() != null) {
+            for (HasMetadata item : list.getItems()) {
+                resources.put(new KindAndName(kind, KubernetesHelper.getName(item)), item);
+                items.add(item);
+            }
+        }
+        resourcesByKind.put(kind, Collections.unmodifiableList(items));
+    }
+
+    /**
+     * @return namespace of the indexed resources
+     */
+    public String getNamespace() {
+        return namespace;
+    }
+
+    /**
+     * @param kind kind to check
+     * @return true if the live state of all resources of this kind is known
+     */
+    public boolean isIndexed(String kind) {
+        return resourcesByKind.containsKey(kind);
+    }
+
+    /**
+     * Check whether a resource is known to not exist in the indexed namespace
+     *
+     * @param namespace namespace of the resource
+     * @param kind kind of the resource
+     * @param name name of the resource
+     * @return true if the kind is indexed for this namespace and no such resource exists
+     */
+    public boolean isMissing(String namespace, String kind, String name) {
+        return Objects.equals(this.namespace, namespace) && isIndexed(kind) && get(kind, name) == null;
+    }
+
+    /**
+     * Get all resources of a kind
+     *
+     * @param kind kind to lookup
+     * @return all resources of this kind or <code>null</code> if this kind is not indexed
+     */
+    public List<HasMetadata> getAll(String kind) {
+        return resourcesByKind.get(kind);
+    }
+
+    /**
+     * Lookup the live state of a resource
+     *
+     * @param kind kind of the resource
+     * @param name name of the resource
+     * @return the resource or <code>null</code> if it doesn't exist or if its kind is not indexed
+     */
+    public HasMetadata get(String kind, String name) {
+        return resources.get(new KindAndName(kind, name));
+    }
+
+    // Operation for listing a kind or null if the kind can't be listed
+    private static MixedOperation<?, ?, ?, ?> getOperation(KubernetesClient client, String kind) {
+        switch (kind) {
+            case "ConfigMap":
+                return client.configMaps();
+            case "Secret":
+                return client.secrets();
+            case "ServiceAccount":
+                return client.serviceAccounts();
+            case "Service":
+                return client.services();
+            case "PersistentVolumeClaim":
+                return client.persistentVolumeClaims();
+            case "ReplicationController":
+                return client.replicationControllers();
+            case "Pod":
+                return client.pods();
+            case "Deployment":
+                return client.extensions().deployments();
+            case "ReplicaSet":
+                return client.extensions().replicaSets();
+            case "DaemonSet":
+                return client.extensions().daemonSets();
+            case "Job":
+                return client.extensions().jobs();
+            case "Ingress":
+                return client.extensions().ingresses();
+            case "StatefulSet":
+                return client.apps().statefulSets();
+        }
+        OpenShiftClient openShiftClient = asOpenShiftClient(client);
+        if (openShiftClient != null) {
+            switch (kind) {
+                case "DeploymentConfig":
+                    return openShiftClient.deploymentConfigs();
+                case "BuildConfig":
+                    return openShiftClient.buildConfigs();
+                case "ImageStream":
+                    return openShiftClient.imageStreams();
+                case "Route":
+                    return openShiftClient.routes();
+            }
+        }
+        return null;
+    }
+
+    private static OpenShiftClient asOpenShiftClient(KubernetesClient client) {
+        if (client instanceof OpenShiftClient) {
+            return (OpenShiftClient) client;
+        }
+        return client.isAdaptable(OpenShiftClient.class) ? client.adapt(OpenShiftClient.class) : null;
+    }
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.access;
+
+import java.util.Objects;
+
+import io.fabric8.kubernetes.api.Controller;
+import io.fabric8.kubernetes.api.KubernetesHelper;
+import io.fabric8.kubernetes.api.UserConfigurationCompare;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.PersistentVolumeClaim;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.ReplicationController;
+import io.fabric8.kubernetes.api.model.Secret;
+import io.fabric8.kubernetes.api.model.Service;
+import io.fabric8.kubernetes.api.model.ServiceAccount;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.dsl.MixedOperation;
+import io.fabric8.kubernetes.client.dsl.Resource;
+import io.fabric8.openshift.api.model.BuildConfig;
+import io.fabric8.openshift.api.model.ImageStream;
+import io.fabric8.openshift.api.model.Route;
+import io.fabric8.utils.Strings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Controller which takes the live state of resources from a {@link ClusterResourceIndex} instead of asking
+ * the API server for every single resource:
+ *
+ * <ul>
+ *   <li>Resources which are equal to their live state are skipped without any request.</li>
+ *   <li>Missing resources are created right away.</li>
+ *   <li>Changed resources are replaced right away. Only ReplicationControllers, Pods, BuildConfigs and
+ *       ImageStreams are still applied by the {@link Controller} itself, which looks them up again, because its
+ *       rolling upgrade and tag merging logic needs the live state but can't be given one.</li>
+ * </ul>
+ *
+ * Resources which aren't covered by the index and all resources in recreate mode are applied as usual.
+ *
+ * @since 17/10/26
+ */
+public class IndexedController extends Controller {
+
+    private static final transient Logger LOG = LoggerFactory.getLogger(IndexedController.class);
+
+    // Live state of a resource as known by the index
+    private enum LiveState {
+        UNKNOWN, MISSING, UNCHANGED, CHANGED
+    }
+
+    private final KubernetesClient kubernetesClient;
+
+    private volatile ClusterResourceIndex resourceIndex;
+
+    public IndexedController(KubernetesClient kubernetesClient) {
+        super(kubernetesClient);
+        this.kubernetesClient = kubernetesClient;
+    }
+
+    /**
+     * Set the index to use for looking up the live state of resources
+     *
+     * @param resourceIndex index or <code>null</code> if every resource should be looked up individually
+     */
+    public void setResourceIndex(ClusterResourceIndex resourceIndex) {
+        this.resourceIndex = resourceIndex;
+    }
+
+    public ClusterResourceIndex getResourceIndex() {
+        return resourceIndex;
+    }
+
+    @Override
+    public void applyService(Service service, String sourceName) throws Exception {
+        String namespace = getNamespace();
+        LiveState state = isIgnoreServiceMode() ? LiveState.UNKNOWN : getLiveState(namespace, service);
+        switch (state) {
+            case MISSING:
+                doCreateService(service, namespace, sourceName);
+                break;
+            case UNCHANGED:
+                logUnchanged(service);
+                break;
+            case CHANGED:
+                doReplaceResource(service, namespace, sourceName, kubernetesClient.services());
+                break;
+            default:
+                super.applyService(service, sourceName);
+        }
+    }
+
+    @Override
+    public void applyReplicationController(ReplicationController replicationController, String sourceName) throws Exception {
+        String namespace = getNamespace();
+        LiveState state = isServicesOnlyMode() ? LiveState.UNKNOWN : getLiveState(namespace, replicationController);
+        switch (state) {
+            case MISSING:
+                doCreateReplicationController(replicationController, namespace, sourceName);
+                break;
+            case UNCHANGED:
+                logUnchanged(replicationController);
+                break;
+            default:
+                // Rolling upgrades are done by the controller only
+                super.applyReplicationController(replicationController, sourceName);
+        }
+    }
+
+    @Override
+    public void applyPod(Pod pod, String sourceName) throws Exception {
+        String namespace = getNamespace();
+        LiveState state = isServicesOnlyMode() ? LiveState.UNKNOWN : getLiveState(namespace, pod);
+        switch (state) {
+            case MISSING:
+                doCreatePod(pod, namespace, sourceName);
+                break;
+            case UNCHANGED:
+                logUnchanged(pod);
+                break;
+            default:
+                super.applyPod(pod, sourceName);
+        }
+    }
+
+    @Override
+    public void applySecret(Secret secret, String sourceName) throws Exception {
+        String namespace = getNamespace(secret);
+        LiveState state = isServicesOnlyMode() ? LiveState.UNKNOWN : getLiveState(namespace, secret);
+        switch (state) {
+            case MISSING:
+                doCreateSecret(secret, namespace, sourceName);
+                break;
+            case UNCHANGED:
+                logUnchanged(secret);
+                break;
+            case CHANGED:
+                doReplaceResource(secret, namespace, sourceName, kubernetesClient.secrets());
+                break;
+            default:
+                super.applySecret(secret, sourceName);
+        }
+    }
+
+    @Override
+    public void applyServiceAccount(ServiceAccount serviceAccount, String sourceName) throws Exception {
+        String namespace = getNamespace(serviceAccount);
+        LiveState state = isServicesOnlyMode() ? LiveState.UNKNOWN : getLiveState(namespace, serviceAccount);
+        switch (state) {
+            case MISSING:
+                doCreateServiceAccount(serviceAccount, namespace, sourceName);
+                break;
+            case UNCHANGED:
+                logUnchanged(serviceAccount);
+                break;
+            case CHANGED:
+                doReplaceResource(serviceAccount, namespace, sourceName, kubernetesClient.serviceAccounts());
+                break;
+            default:
+                super.applyServiceAccount(serviceAccount, sourceName);
+        }
+    }
+
+    @Override
+    public void applyPersistentVolumeClaim(PersistentVolumeClaim claim, String sourceName) throws Exception {
+        String namespace = getNamespace(claim);
+        LiveState state = isServicesOnlyMode() ? LiveState.UNKNOWN : getLiveState(namespace, claim);
+        switch (state) {
+            case MISSING:
+                doCreatePersistentVolumeClaim(claim, namespace, sourceName);
+                break;
+            case UNCHANGED:
+                logUnchanged(claim);
+                break;
+            case CHANGED:
+                doReplaceResource(claim, namespace, sourceName, kubernetesClient.persistentVolumeClaims());
+                break;
+            default:
+                super.applyPersistentVolumeClaim(claim, sourceName);
+        }
+    }
+
+    // Used for DeploymentConfigs, Deployments, ConfigMaps and all other kinds without a dedicated method
+    @Override
+    public <T extends HasMetadata, L, D> void applyResource(T resource, String sourceName,
+                                                            MixedOperation<T, L, D, ? extends Resource<T, D>> resources) throws Exception {
+        String namespace = getNamespace(resource);
+        LiveState state = isServicesOnlyMode() ? LiveState.UNKNOWN : getLiveState(namespace, resource);
+        if (state != LiveState.UNKNOWN && Strings.isNullOrBlank(KubernetesHelper.getNamespace(resource))) {
+            KubernetesHelper.getOrCreateMetadata(resource).setNamespace(namespace);
+        }
+        switch (state) {
+            case MISSING:
+                doCreateResource(resource, namespace, sourceName, resources);
+                break;
+            case UNCHANGED:
+                logUnchanged(resource);
+                break;
+            case CHANGED:
+                doReplaceResource(resource, namespace, sourceName, resources);
+                break;
+            default:
+                super.applyResource(resource, sourceName, resources);
+        }
+    }
+
+    @Override
+    public void applyRoute(Route route, String sourceName) {
+        // Existing routes are never updated. Routes are only indexed if the cluster supports them.
+        LiveState state = getLiveState(getNamespace(route), route);
+        if (state == LiveState.UNCHANGED || state == LiveState.CHANGED) {
+            return;
+        }
+        super.applyRoute(route, sourceName);
+    }
+
+    @Override
+    public void applyBuildConfig(BuildConfig buildConfig, String sourceName) {
+        if (getLiveState(getNamespace(buildConfig), buildConfig) == LiveState.UNCHANGED) {
+            logUnchanged(buildConfig);
+            return;
+        }
+        // Missing build configs are created by the controller, which also creates the namespace if required
+        super.applyBuildConfig(buildConfig, sourceName);
+    }
+
+    @Override
+    public void applyImageStream(ImageStream imageStream, String sourceName) {
+        if (getLiveState(getNamespace(), imageStream) == LiveState.UNCHANGED) {
+            logUnchanged(imageStream);
+            return;
+        }
+        // Tags of changed streams are merged with the live tags by the controller
+        super.applyImageStream(imageStream, sourceName);
+    }
+
+    // Compare a resource with its live state from the index. Changed resources are unknown in recreate mode,
+    // missing ones if they must not be created, so that the controller handles them.
+    private LiveState getLiveState(String namespace, HasMetadata entity) {
+        ClusterResourceIndex index = resourceIndex;
+        String kind = KubernetesHelper.getKind(entity);
+        if (index == null || !Objects.equals(index.getNamespace(), namespace) || !index.isIndexed(kind)) {
+            return LiveState.UNKNOWN;
+        }
+        HasMetadata live = index.get(kind, KubernetesHelper.getName(entity));
+        if (live == null) {
+            return isAllowCreate() && !isRecreateMode() ? LiveState.MISSING : LiveState.UNKNOWN;
+        }
+        if (UserConfigurationCompare.configEqual(entity, live)) {
+            return LiveState.UNCHANGED;
+        }
+        return isRecreateMode() ? LiveState.UNKNOWN : LiveState.CHANGED;
+    }
+
+    private void logUnchanged(HasMetadata entity) {
+        LOG.info(KubernetesHelper.getKind(entity) + " has not changed so not doing anything");
+    }
+
+    // Replace a resource like the controller does, but without looking it up first. The resource version of the
+    // indexed live state is used, so that the client doesn't fetch it either.
+    private <T extends HasMetadata, L, D> void doReplaceResource(T entity, String namespace, String sourceName,
+                                                                 MixedOperation<T, L, D, ? extends Resource<T, D>> resources) {
+        String kind = KubernetesHelper.getKind(entity);
+        LOG.info("Updating " + kind + " from " + sourceName);
+        try {
+            Resource<T, D> resource = resources.inNamespace(namespace).withName(KubernetesHelper.getName(entity));
+            Object answer;
+            String resourceVersion = getIndexedResourceVersion(entity);
+            if (resourceVersion != null) {
+                try {
+                    answer = resource.lockResourceVersion(resourceVersion).replace(entity);
+                } catch (KubernetesClientException exp) {
+                    if (exp.getCode() != 409) {
+                        throw exp;
+                    }
+                    // Changed since the index has been loaded
+                    answer = resource.replace(entity);
+                }
+            } else {
+                answer = resource.replace(entity);
+            }
+            logGeneratedEntity("Updated " + kind + ": ", namespace, entity, answer);
+        } catch (Exception e) {
+            onApplyError("Failed to update " + kind + " from " + sourceName + ". " + e + ". " + entity, e);
+        }
+    }
+
+    private String getIndexedResourceVersion(HasMetadata entity) {
+        ClusterResourceIndex index = resourceIndex;
+        HasMetadata live = index != null ? index.get(KubernetesHelper.getKind(entity), KubernetesHelper.getName(entity)) : null;
+        return live != null && live.getMetadata() != null ? live.getMetadata().getResourceVersion() : null;
+    }
+}
@@ -0,0 +1,349 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.access;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import io.fabric8.kubernetes.client.Config;
+import io.fabric8.kubernetes.client.DefaultKubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.utils.HttpClientUtils;
+import io.fabric8.maven.core.util.ResourceCache;
+import io.fabric8.openshift.client.DefaultOpenShiftClient;
+import io.fabric8.openshift.client.OpenShiftClient;
+import io.fabric8.openshift.client.OpenShiftConfig;
+import okhttp3.OkHttpClient;
+
+/**
+ * Pool of HTTP connections shared by all clients with the same connection settings (master URL, credentials,
+ * certificates, proxy and timeouts) and namespace. All clients handed out for such a combination use a single
+ * {@link OkHttpClient}, so that connections and TLS sessions are reused during the whole build.
+ *
+ * All requests of clients for the same master URL and user pass through a common {@link ApiRequestLimiter}.
+ *
+ * Clients are reference counted. Closing a client only releases it, the shared connections are kept open
+ * for later goals and modules until {@link #closeIdle()} is called. Clients acquired within a {@link Scope}
+ * are released when the scope is closed, so that callers holding on to a client don't need to close it
+ * themselves. All connections are closed when the JVM exits.
+ *
+ * @since 17/10/26
+ */
+public class KubernetesClientPool {
+
+    private static final KubernetesClientPool INSTANCE = new KubernetesClientPool();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread("fabric8-client-pool-shutdown") {
+            @Override
+            public void run() {
+                INSTANCE.closeAll();
+            }
+        });
+    }
+
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    // Limiters per master URL and user, shared by all namespaces
+    private final Map<String, ApiRequestLimiter> limiters = new HashMap<>();
+    private ApiRequestLimiter.Settings limiterSettings = ApiRequestLimiter.Settings.unlimited();
+
+    // Scope of the current thread, inherited by threads started within the scope
+    private final InheritableThreadLocal<Scope> currentScope = new InheritableThreadLocal<>();
+
+    KubernetesClientPool() { }
+
+    public static KubernetesClientPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get a client for the given configuration. The client must be closed when not needed anymore.
+     *
+     * @param config client configuration
+     * @return a client using the shared connections
+     */
+    public synchronized KubernetesClient acquireKubernetesClient(Config config) {
+        String key = createKey(config);
+        return register(new PooledKubernetesClient(this, acquire(key, config), config, key));
+    }
+
+    /**
+     * Get an OpenShift client for the given configuration. The client must be closed when not needed anymore.
+     *
+     * @param config client configuration
+     * @return a client using the shared connections
+     */
+    public synchronized OpenShiftClient acquireOpenShiftClient(Config config) {
+        String key = createKey(config);
+        return register(new PooledOpenShiftClient(this, acquire(key, config), OpenShiftConfig.wrap(config), key));
+    }
+
+    /**
+     * Open a scope for the current thread and all threads started by it. All clients acquired within the scope
+     * are released when the scope is closed. Clients acquired outside of any scope must be closed by the caller.
+     *
+     * @return the scope, which must be closed
+     */
+    public Scope openScope() {
+        Scope scope = new Scope(currentScope.get());
+        currentScope.set(scope);
+        return scope;
+    }
+
+    /**
+     * Configure how requests to the API servers are limited. Applies to existing and new clients.
+     *
+     * @param settings settings to use
+     */
+    public synchronized void configureRequestLimits(ApiRequestLimiter.Settings settings) {
+        limiterSettings = settings;
+        for (ApiRequestLimiter limiter : limiters.values()) {
+            limiter.configure(settings);
+        }
+    }
+
+    /**
+     * Close the idle connections of all configurations without any client in use. Later clients for these
+     * configurations get new connections. Requests which are still running, like watches of released clients
+     * continuing in the background, are not interrupted.
+     */
+    public synchronized void closeIdle() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.references <= 0) {
+                entry.closeIdleConnections();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Close all connections, regardless whether clients are still in use. Clients still in use fail afterwards,
+     * so this is only called when the JVM exits. Use {@link #closeIdle()} at the end of a build.
+     */
+    public synchronized void closeAll() {
+        for (Entry entry : entries.values()) {
+            entry.close();
+        }
+        entries.clear();
+    }
+
+    /**
+     * Get the number of clients in use for the given configuration
+     *
+     * @param config client configuration
+     * @return number of clients acquired and not yet closed
+     */
+    public synchronized int getReferenceCount(Config config) {
+        Entry entry = entries.get(createKey(config));
+        return entry != null ? entry.references : 0;
+    }
+
+    // ==========================================================================================
+
+    private OkHttpClient acquire(String key, Config config) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            OkHttpClient httpClient = HttpClientUtils.createHttpClient(config)
+                                                     .newBuilder()
+                                                     .addInterceptor(getLimiter(config))
+                                                     .build();
+            entry = new Entry(httpClient);
+            entries.put(key, entry);
+        }
+        entry.references++;
+        return entry.httpClient;
+    }
+
+    private <T extends KubernetesClient> T register(T client) {
+        Scope scope = currentScope.get();
+        if (scope != null) {
+            scope.add(client);
+        }
+        return client;
+    }
+
+    private ApiRequestLimiter getLimiter(Config config) {
+        String key = ClusterCapabilityCache.createKey(config);
+        ApiRequestLimiter limiter = limiters.get(key);
+        if (limiter == null) {
+            limiter = new ApiRequestLimiter(limiterSettings);
+            limiters.put(key, limiter);
+        }
+        return limiter;
+    }
+
+    private synchronized void release(String key, OkHttpClient httpClient) {
+        Entry entry = entries.get(key);
+        // The entry might have been closed and recreated in the meantime
+        if (entry != null && entry.httpClient == httpClient) {
+            entry.references--;
+        }
+    }
+
+    // Everything the shared HTTP client is built from, so that clients are only shared between identical settings.
+    // Package visible for tests.
+    static String createKey(Config config) {
+        return new ResourceCache.Fingerprint()
+            .add("masterUrl", config.getMasterUrl())
+            .add("username", config.getUsername())
+            .add("password", config.getPassword())
+            .add("oauthToken", config.getOauthToken())
+            .add("clientCertFile", config.getClientCertFile())
+            .add("clientCertData", config.getClientCertData())
+            .add("clientKeyFile", config.getClientKeyFile())
+            .add("clientKeyData", config.getClientKeyData())
+            .add("clientKeyAlgo", config.getClientKeyAlgo())
+            .add("clientKeyPassphrase", config.getClientKeyPassphrase())
+            .add("caCertFile", config.getCaCertFile())
+            .add("caCertData", config.getCaCertData())
+            .add("trustCerts", config.isTrustCerts())
+            .add("keyStoreFile", config.getKeyStoreFile())
+            .add("keyStorePassphrase", config.getKeyStorePassphrase())
+            .add("trustStoreFile", config.getTrustStoreFile())
+            .add("trustStorePassphrase", config.getTrustStorePassphrase())
+            .add("httpProxy", config.getHttpProxy())
+            .add("httpsProxy", config.getHttpsProxy())
+            .add("noProxy", Arrays.toString(config.getNoProxy()))
+            .add("proxyUsername", config.getProxyUsername())
+            .add("proxyPassword", config.getProxyPassword())
+            .add("connectionTimeout", config.getConnectionTimeout())
+            .add("requestTimeout", config.getRequestTimeout())
+            .add("websocketPingInterval", config.getWebsocketPingInterval())
+            .add("maxConcurrentRequestsPerHost", config.getMaxConcurrentRequestsPerHost())
+            .add("tlsVersions", Arrays.toString(config.getTlsVersions()))
+            .add("userAgent", config.getUserAgent())
+            .add("namespace", config.getNamespace())
+            .getHash();
+    }
+
+    /**
+     * Scope within which all acquired clients are released together, e.g. the execution of a single goal
+     */
+    public class Scope implements AutoCloseable {
+
+        private final Scope parent;
+        private final List<KubernetesClient> clients = new ArrayList<>();
+        private boolean closed;
+
+        private Scope(Scope parent) {
+            this.parent = parent;
+        }
+
+        private synchronized void add(KubernetesClient client) {
+            // Threads started within a closed scope still refer to it, their clients must be closed by the caller
+            if (!closed) {
+                clients.add(client);
+            }
+        }
+
+        /**
+         * Release all clients acquired within this scope and restore the scope which was active when
+         * this scope was opened
+         */
+        @Override
+        public void close() {
+            List<KubernetesClient> toRelease;
+            synchronized (this) {
+                closed = true;
+                toRelease = new ArrayList<>(clients);
+                clients.clear();
+            }
+            for (KubernetesClient client : toRelease) {
+                client.close();
+            }
+            if (currentScope.get() == this) {
+                currentScope.set(parent);
+            }
+        }
+    }
+
+    private static class Entry {
+        private final OkHttpClient httpClient;
+        private int references;
+
+        Entry(OkHttpClient httpClient) {
+            this.httpClient = httpClient;
+        }
+
+        void closeIdleConnections() {
+            httpClient.connectionPool().evictAll();
+        }
+
+        void close() {
+            httpClient.dispatcher().executorService().shutdown();
+            httpClient.connectionPool().evictAll();
+        }
+    }
+
+    private static class PooledKubernetesClient extends DefaultKubernetesClient {
+
+        private final KubernetesClientPool pool;
+        private final OkHttpClient sharedClient;
+        private final String key;
+        private boolean closed;
+
+        PooledKubernetesClient(KubernetesClientPool pool, OkHttpClient httpClient, Config config, String key) {
+            super(httpClient, config);
+            this.pool = pool;
+            this.sharedClient = httpClient;
+            this.key = key;
+        }
+
+        @Override
+        public void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+            }
+            pool.release(key, sharedClient);
+        }
+    }
+
+    private static class PooledOpenShiftClient extends DefaultOpenShiftClient {
+
+        private final KubernetesClientPool pool;
+        private final OkHttpClient sharedClient;
+        private final String key;
+        private boolean closed;
+
+        PooledOpenShiftClient(KubernetesClientPool pool, OkHttpClient httpClient, OpenShiftConfig config, String key) {
+            super(httpClient, config);
+            this.pool = pool;
+            this.sharedClient = httpClient;
+            this.key = key;
+        }
+
+        @Override
+        public void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+            }
+            pool.release(key, sharedClient);
+        }
+    }
+}
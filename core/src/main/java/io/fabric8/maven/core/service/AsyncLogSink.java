@@ -0,0 +1,254 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.service;
+
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.fabric8.maven.docker.util.Logger;
+
+/**
+ * Prints log lines asynchronously to the console. Lines are offered by any number of reader threads and
+ * printed by a single printer thread, so that readers are never slowed down by the console.
+ *
+ * <ul>
+ *     <li>Lines exceeding the configured number of lines per second are suppressed</li>
+ *     <li>Lines arriving while the queue is full are dropped, unless the sink is lossless. Then the reader
+ *     waits until the printer has caught up.</li>
+ * </ul>
+ *
+ * In both cases a line is discarded before it's converted into a String, and a summary of the discarded lines
+ * is printed about once a second. Lines still queued when the sink is closed are printed before it stops.
+ *
+ * @since 17/10/26
+ */
+public class AsyncLogSink implements Closeable {
+
+    // How often the printer reports discarded lines and checks whether it has been closed
+    private static final long POLL_INTERVAL_MILLIS = 1000;
+
+    // How long closing waits for the queued lines to be printed
+    private static final long DRAIN_TIMEOUT_MILLIS = 2000;
+
+    private final Logger log;
+    private final BlockingQueue<LogLine> queue;
+    private final int maxLinesPerSecond;
+    private final boolean dropWhenFull;
+
+    private final AtomicLong droppedLines = new AtomicLong();
+    private final AtomicLong suppressedLines = new AtomicLong();
+
+    // Fixed one second window for the rate limit
+    private long windowStartNanos = System.nanoTime();
+    private int linesInWindow;
+
+    private volatile boolean closed;
+    private Thread printer;
+
+    /**
+     * @param log logger to print the lines to
+     * @param queueSize maximum number of lines buffered before lines get dropped
+     * @param maxLinesPerSecond maximum number of lines printed per second, a value &lt;= 0 disables the limit
+     */
+    public AsyncLogSink(Logger log, int queueSize, int maxLinesPerSecond) {
+        this(log, queueSize, maxLinesPerSecond, true);
+    }
+
+    /**
+     * @param log logger to print the lines to
+     * @param queueSize maximum number of lines buffered
+     * @param maxLinesPerSecond maximum number of lines printed per second, a value &lt;= 0 disables the limit
+     * @param dropWhenFull whether to drop lines while the queue is full, otherwise offering a line waits
+     *                     for free space
+     */
+    public AsyncLogSink(Logger log, int queueSize, int maxLinesPerSecond, boolean dropWhenFull) {
+        this.log = log;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+        this.maxLinesPerSecond = maxLinesPerSecond;
+        this.dropWhenFull = dropWhenFull;
+    }
+
+    /**
+     * Start the thread printing the lines
+     */
+    public synchronized void start() {
+        if (printer == null) {
+            printer = new Thread("pod log printer") {
+                @Override
+                public void run() {
+                    printLines();
+                }
+            };
+            printer.setDaemon(true);
+            printer.start();
+        }
+    }
+
+    /**
+     * Offer an UTF-8 encoded line for printing. Only blocks if the sink doesn't drop lines and the queue is full.
+     *
+     * @param source prefix printed in front of the line or <code>null</code> for no prefix
+     * @param buffer buffer holding the line, only accessed during this call
+     * @param offset start of the line
+     * @param length length of the line in bytes
+     * @return true if the line has been queued, false if it has been suppressed or dropped
+     */
+    public boolean offer(String source, byte[] buffer, int offset, int length) {
+        if (!acquireRatePermit()) {
+            return false;
+        }
+        return enqueue(new LogLine(source, new String(buffer, offset, length, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Offer a line for printing. Only blocks if the sink doesn't drop lines and the queue is full.
+     *
+     * @param source prefix printed in front of the line or <code>null</code> for no prefix
+     * @param line line to print
+     * @return true if the line has been queued, false if it has been suppressed or dropped
+     */
+    public boolean offer(String source, String line) {
+        return acquireRatePermit() && enqueue(new LogLine(source, line));
+    }
+
+    long getDroppedLines() {
+        return droppedLines.get();
+    }
+
+    long getSuppressedLines() {
+        return suppressedLines.get();
+    }
+
+    /**
+     * Stop printing. Waits a short time for the lines still queued to be printed.
+     */
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            closed = true;
+            thread = printer;
+        }
+        if (thread == null) {
+            return;
+        }
+        try {
+            thread.join(DRAIN_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread.interrupt();
+    }
+
+    private boolean enqueue(LogLine line) {
+        if (queue.offer(line)) {
+            return true;
+        }
+        if (!dropWhenFull) {
+            try {
+                // Checks regularly whether the printer is still running
+                while (!closed) {
+                    if (queue.offer(line, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        droppedLines.incrementAndGet();
+        return false;
+    }
+
+    private boolean acquireRatePermit() {
+        if (maxLinesPerSecond <= 0) {
+            return true;
+        }
+        synchronized (queue) {
+            long now = System.nanoTime();
+            if (now - windowStartNanos >= TimeUnit.SECONDS.toNanos(1)) {
+                windowStartNanos = now;
+                linesInWindow = 0;
+            }
+            if (linesInWindow < maxLinesPerSecond) {
+                linesInWindow++;
+                return true;
+            }
+        }
+        suppressedLines.incrementAndGet();
+        return false;
+    }
+
+    private void printLines() {
+        long lastReport = System.nanoTime();
+        while (!closed) {
+            try {
+                LogLine line = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (line != null) {
+                    print(line);
+                }
+                long now = System.nanoTime();
+                if (now - lastReport >= TimeUnit.MILLISECONDS.toNanos(POLL_INTERVAL_MILLIS)) {
+                    reportDiscardedLines();
+                    lastReport = now;
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+        // Drain what has been queued until closing, e.g. the final stack trace of a stopped app
+        LogLine line;
+        while (!Thread.currentThread().isInterrupted() && (line = queue.poll()) != null) {
+            print(line);
+        }
+        reportDiscardedLines();
+    }
+
+    private void print(LogLine line) {
+        if (line.source != null) {
+            log.info("[[s]][%s] %s", line.source, line.text);
+        } else {
+            log.info("[[s]]%s", line.text);
+        }
+    }
+
+    private void reportDiscardedLines() {
+        long suppressed = suppressedLines.getAndSet(0);
+        if (suppressed > 0) {
+            log.warn("Suppressed %d log lines, more than %d lines per second", suppressed, maxLinesPerSecond);
+        }
+        long dropped = droppedLines.getAndSet(0);
+        if (dropped > 0) {
+            log.warn("%d log lines dropped because the console can't keep up", dropped);
+        }
+    }
+
+    // =======================================
+
+    private static class LogLine {
+        private final String source;
+        private final String text;
+
+        private LogLine(String source, String text) {
+            this.source = source;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.service;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Filters log lines by an include and an exclude pattern. A line passes if the include pattern can be found
+ * in it and the exclude pattern can't. Lines are decoded into a reused buffer and matched with reused
+ * matchers, so filtered lines are never turned into Strings.
+ *
+ * A filter keeps state for matching and must only be used by a single thread.
+ *
+ * @since 17/10/26
+ */
+public class LogLineFilter {
+
+    private final Matcher includeMatcher;
+    private final Matcher excludeMatcher;
+
+    private final CharsetDecoder decoder;
+    private CharBuffer chars = CharBuffer.allocate(256);
+
+    /**
+     * @param includePattern pattern which must be found in a line or <code>null</code> for including all lines
+     * @param excludePattern pattern which must not be found in a line or <code>null</code> for excluding none
+     */
+    public LogLineFilter(Pattern includePattern, Pattern excludePattern) {
+        this.includeMatcher = includePattern != null ? includePattern.matcher("") : null;
+        this.excludeMatcher = excludePattern != null ? excludePattern.matcher("") : null;
+        this.decoder = StandardCharsets.UTF_8.newDecoder()
+                                             .onMalformedInput(CodingErrorAction.REPLACE)
+                                             .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    /**
+     * @return true if this filter lets every line pass
+     */
+    public boolean isAcceptingAll() {
+        return includeMatcher == null && excludeMatcher == null;
+    }
+
+    /**
+     * Check an UTF-8 encoded line
+     *
+     * @param buffer buffer holding the line
+     * @param offset start of the line
+     * @param length length of the line in bytes
+     * @return true if the line passes the filter
+     */
+    public boolean accept(byte[] buffer, int offset, int length) {
+        if (isAcceptingAll()) {
+            return true;
+        }
+        return accept(decode(buffer, offset, length));
+    }
+
+    /**
+     * @param line line to check
+     * @return true if the line passes the filter
+     */
+    public boolean accept(CharSequence line) {
+        if (includeMatcher != null && !includeMatcher.reset(line).find()) {
+            return false;
+        }
+        return excludeMatcher == null || !excludeMatcher.reset(line).find();
+    }
+
+    private CharBuffer decode(byte[] buffer, int offset, int length) {
+        // UTF-8 never needs more chars than bytes
+        if (chars.capacity() < length) {
+            chars = CharBuffer.allocate(Math.max(length, chars.capacity() * 2));
+        }
+        chars.clear();
+        decoder.reset();
+        decoder.decode(ByteBuffer.wrap(buffer, offset, length), chars, true);
+        decoder.flush(chars);
+        chars.flip();
+        return chars;
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import io.fabric8.kubernetes.api.KubernetesHelper;
+import io.fabric8.kubernetes.api.model.Container;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.maven.core.util.LineSplitter;
+import io.fabric8.maven.core.util.RotatingLogFile;
+import io.fabric8.maven.docker.util.Logger;
+import io.fabric8.utils.Strings;
+
+/**
+ * Follows the logs of many pods and containers at the same time. Each container log is read by its own
+ * {@link ResumableLogWatch} and filtered by its own {@link LogLineFilter}. The lines are merged into an
+ * {@link AsyncLogSink} and printed with a <code>[pod/container]</code> prefix. The sink never blocks but
+ * drops lines instead, so that a single chatty container can't stall the others. Optionally, all lines are
+ * written unfiltered to {@link PodLogFiles}.
+ *
+ * @since 17/10/26
+ */
+public class MultiPodLogTailer implements Closeable {
+
+    private final Logger log;
+    private final AsyncLogSink sink;
+    private final PodLogFiles logFiles;
+    private final Pattern includePattern;
+    private final Pattern excludePattern;
+    private final Map<String, Closeable> sources = new ConcurrentHashMap<>();
+    // Timestamp of the last line of detached containers, for resuming when they get attached again
+    private final Map<String, Long> lastTimestamps = new ConcurrentHashMap<>();
+
+    private volatile boolean closed;
+
+    /**
+     * @param log logger for status messages
+     * @param sink sink to print the merged lines to, <code>null</code> for not printing lines
+     * @param logFiles files to write the lines to, <code>null</code> for not writing any files
+     * @param includePattern pattern lines must contain to be printed, can be <code>null</code>
+     * @param excludePattern pattern lines must not contain to be printed, can be <code>null</code>
+     */
+    public MultiPodLogTailer(Logger log, AsyncLogSink sink, PodLogFiles logFiles, Pattern includePattern, Pattern excludePattern) {
+        this.log = log;
+        this.sink = sink;
+        this.logFiles = logFiles;
+        this.includePattern = includePattern;
+        this.excludePattern = excludePattern;
+    }
+
+    /**
+     * Start following the containers of a pod which are not followed yet
+     *
+     * @param kubernetes client to use
+     * @param namespace namespace of the pod
+     * @param pod pod to follow
+     * @param containerName name of the single container to follow or <code>null</code> for all containers
+     */
+    public void attach(KubernetesClient kubernetes, String namespace, Pod pod, String containerName) {
+        String podName = KubernetesHelper.getName(pod);
+        for (Container container : KubernetesHelper.getContainers(pod)) {
+            if (Strings.isNotBlank(containerName) && !containerName.equals(container.getName())) {
+                continue;
+            }
+            String key = getKey(podName, container.getName());
+            if (closed || sources.containsKey(key)) {
+                continue;
+            }
+            ResumableLogWatch logWatch = new ResumableLogWatch(kubernetes, namespace, podName, container.getName(),
+                                                               lastTimestamps.remove(key),
+                                                               createLineHandler(key, podName, container.getName()), log);
+            addSource(key, logWatch);
+            logWatch.start();
+        }
+    }
+
+    /**
+     * Stop following all containers of a pod
+     *
+     * @param podName name of the pod
+     */
+    public void detach(String podName) {
+        for (String key : getSourceKeys(podName)) {
+            Closeable source = sources.remove(key);
+            if (source != null) {
+                log.info("Stopped tailing log of %s", key);
+                closeSource(key, source);
+            }
+        }
+    }
+
+    /**
+     * @param podName name of the pod
+     * @return true if the log of at least one container of the pod is followed
+     */
+    public boolean isAttached(String podName) {
+        return !getSourceKeys(podName).isEmpty();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (String key : new ArrayList<>(sources.keySet())) {
+            Closeable source = sources.remove(key);
+            if (source != null) {
+                closeSource(key, source);
+            }
+        }
+    }
+
+    void addSource(String key, Closeable source) {
+        sources.put(key, source);
+        log.info("Tailing log of %s", key);
+    }
+
+    private LineSplitter.LineHandler createLineHandler(final String key, String podName, String containerName) {
+        final LogLineFilter filter = new LogLineFilter(includePattern, excludePattern);
+        final RotatingLogFile file = logFiles != null ? logFiles.open(podName, containerName) : null;
+        return new LineSplitter.LineHandler() {
+            @Override
+            public void onLine(byte[] buffer, int offset, int length) {
+                if (file != null) {
+                    logFiles.writeLine(file, buffer, offset, length);
+                }
+                if (sink != null && filter.accept(buffer, offset, length)) {
+                    sink.offer(key, buffer, offset, length);
+                }
+            }
+        };
+    }
+
+    private void closeSource(String key, Closeable source) {
+        if (source instanceof ResumableLogWatch) {
+            Long lastLine = ((ResumableLogWatch) source).getLastTimestamp();
+            if (lastLine != null) {
+                lastTimestamps.put(key, lastLine);
+            }
+        }
+        try {
+            source.close();
+        } catch (IOException e) {
+            // ignore, the stream is going away anyway
+        }
+        if (logFiles != null) {
+            int idx = key.indexOf('/');
+            logFiles.close(key.substring(0, idx), key.substring(idx + 1));
+        }
+    }
+
+    private List<String> getSourceKeys(String podName) {
+        List<String> ret = new ArrayList<>();
+        String prefix = podName + "/";
+        for (String key : sources.keySet()) {
+            if (key.startsWith(prefix)) {
+                ret.add(key);
+            }
+        }
+        return ret;
+    }
+
+    private static String getKey(String podName, String containerName) {
+        return podName + "/" + containerName;
+    }
+}
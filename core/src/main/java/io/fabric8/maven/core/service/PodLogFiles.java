@@ -0,0 +1,177 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.service;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.fabric8.maven.core.util.RotatingLogFile;
+import io.fabric8.maven.docker.util.Logger;
+import io.fabric8.utils.Strings;
+
+/**
+ * Log files for the followed pods, one {@link RotatingLogFile} per pod and container. The files are named
+ * <code>&lt;pod&gt;_&lt;container&gt;.log</code>, which is unique as Kubernetes names can't contain
+ * underscores.
+ *
+ * Buffered lines are flushed by a background thread every second, so that the files are up to date even when
+ * a container stops logging.
+ *
+ * @since 17/10/26
+ */
+public class PodLogFiles implements Closeable {
+
+    private static final long FLUSH_INTERVAL_MILLIS = 1000;
+
+    private final File dir;
+    private final long maxFileSize;
+    private final int maxRotatedFiles;
+    private final Logger log;
+
+    private final Map<String, RotatingLogFile> files = new ConcurrentHashMap<>();
+
+    private Thread flusher;
+    private boolean closed;
+
+    /**
+     * @param dir directory to write the files to
+     * @param maxFileSize size in bytes after which a file is rotated
+     * @param maxRotatedFiles number of rotated files to keep per pod and container
+     * @param log logger for reporting errors
+     */
+    public PodLogFiles(File dir, long maxFileSize, int maxRotatedFiles, Logger log) {
+        this.dir = dir;
+        this.maxFileSize = maxFileSize;
+        this.maxRotatedFiles = maxRotatedFiles;
+        this.log = log;
+    }
+
+    /**
+     * Open the file of a pod and container or return the one which is already open
+     *
+     * @param podName name of the pod
+     * @param containerName name of the container, can be <code>null</code>
+     * @return the file or <code>null</code> if it can't be opened
+     */
+    public RotatingLogFile open(String podName, String containerName) {
+        String key = getKey(podName, containerName);
+        RotatingLogFile file = files.get(key);
+        if (file == null) {
+            File path = new File(dir, key + ".log");
+            try {
+                file = new RotatingLogFile(path, maxFileSize, maxRotatedFiles);
+                files.put(key, file);
+                startFlusher();
+                log.info("Writing log of %s to %s", podName + (Strings.isNotBlank(containerName) ? "/" + containerName : ""), path);
+            } catch (IOException e) {
+                log.error("Cannot open log file %s : %s", path, e);
+                return null;
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Write a line and report failures instead of throwing them
+     *
+     * @param file file to write to
+     * @param buffer buffer holding the line
+     * @param offset start of the line
+     * @param length length of the line in bytes
+     */
+    public void writeLine(RotatingLogFile file, byte[] buffer, int offset, int length) {
+        try {
+            file.writeLine(buffer, offset, length);
+        } catch (IOException e) {
+            log.error("Cannot write to log file %s : %s", file.getFile(), e);
+        }
+    }
+
+    /**
+     * Close the file of a pod and container, it will be appended to when opened again
+     *
+     * @param podName name of the pod
+     * @param containerName name of the container, can be <code>null</code>
+     */
+    public void close(String podName, String containerName) {
+        RotatingLogFile file = files.remove(getKey(podName, containerName));
+        if (file != null) {
+            closeQuietly(file);
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            if (flusher != null) {
+                flusher.interrupt();
+            }
+        }
+        for (String key : new ArrayList<>(files.keySet())) {
+            RotatingLogFile file = files.remove(key);
+            if (file != null) {
+                closeQuietly(file);
+            }
+        }
+    }
+
+    private synchronized void startFlusher() {
+        if (flusher == null && !closed) {
+            flusher = new Thread("pod log files flusher") {
+                @Override
+                public void run() {
+                    flushPeriodically();
+                }
+            };
+            flusher.setDaemon(true);
+            flusher.start();
+        }
+    }
+
+    private void flushPeriodically() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Thread.sleep(FLUSH_INTERVAL_MILLIS);
+                for (RotatingLogFile file : files.values()) {
+                    try {
+                        file.flush();
+                    } catch (IOException e) {
+                        log.error("Cannot write to log file %s : %s", file.getFile(), e);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // closed
+        }
+    }
+
+    private void closeQuietly(RotatingLogFile file) {
+        try {
+            file.close();
+        } catch (IOException e) {
+            log.error("Cannot close log file %s : %s", file.getFile(), e);
+        }
+    }
+
+    private String getKey(String podName, String containerName) {
+        return Strings.isNotBlank(containerName) ? podName + "_" + containerName : podName;
+    }
+}
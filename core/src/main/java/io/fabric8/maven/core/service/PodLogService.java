@@ -1,5 +1,6 @@
 package io.fabric8.maven.core.service;
 
+import java.io.File;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -7,6 +8,7 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.regex.Pattern;
 
 import io.fabric8.kubernetes.api.KubernetesHelper;
 import io.fabric8.kubernetes.api.PodStatusType;
@@ -21,10 +23,10 @@ import io.fabric8.kubernetes.client.KubernetesClientException;
 import io.fabric8.kubernetes.client.Watch;
 import io.fabric8.kubernetes.client.Watcher;
 import io.fabric8.kubernetes.client.dsl.FilterWatchListDeletable;
-import io.fabric8.kubernetes.client.dsl.LogWatch;
 import io.fabric8.kubernetes.client.dsl.PodResource;
-import io.fabric8.maven.core.util.KubernetesClientUtil;
 import io.fabric8.maven.core.util.KubernetesResourceUtil;
+import io.fabric8.maven.core.util.LineSplitter;
+import io.fabric8.maven.core.util.RotatingLogFile;
 import io.fabric8.maven.docker.util.Logger;
 import io.fabric8.utils.Strings;
 
@@ -46,17 +48,28 @@ public class PodLogService {
     public static final String OPERATION_UNDEPLOY = "undeploy";
     public static final String OPERATION_STOP = "stop";
 
+    private static final long INITIAL_POD_WATCH_BACKOFF_MILLIS = 1000;
+    private static final long MAX_POD_WATCH_BACKOFF_MILLIS = 30000;
+
 
     private PodLogServiceContext context;
     private Logger log;
 
     private Watch podWatcher;
-    private LogWatch logWatcher;
+    private ResumableLogWatch logWatcher;
     private Map<String, Pod> addedPods = new ConcurrentHashMap<>();
     private CountDownLatch terminateLatch = new CountDownLatch(1);
     private String watchingPodName;
     private String newestPodName;
-    private CountDownLatch logWatchTerminateLatch;
+    // Timestamp of the last line seen per pod and container, for resuming when switching back to a pod
+    private Map<String, Long> lastTimestamps = new ConcurrentHashMap<>();
+    private String watchedLogKey;
+    private String watchedLogPod;
+    private String watchedLogContainer;
+    private volatile boolean terminated;
+    private MultiPodLogTailer multiPodTailer;
+    private AsyncLogSink logSink;
+    private PodLogFiles logFiles;
 
     public PodLogService(PodLogServiceContext context) {
         this.context = context;
@@ -91,6 +104,7 @@ public class PodLogService {
                             log.info("Stopping the app:");
                             resizeApp(kubernetes, namespace, entities, 0, log);
                         }
+                        terminated = true;
                         if (podWatcher != null) {
                             podWatcher.close();
                         }
@@ -113,6 +127,21 @@ public class PodLogService {
         } else {
             log.info("Watching pods with selector %s waiting for a running pod...", selector);
         }
+        if (followLog) {
+            if (context.getLogDir() != null) {
+                createLogFiles();
+            }
+            if (context.isLogToConsole() || logFiles == null) {
+                // A single followed log is printed losslessly unless a rate limit is requested
+                boolean dropWhenFull = context.isFollowAllPods() || context.getMaxLogLinesPerSecond() > 0;
+                logSink = new AsyncLogSink(log, context.getLogQueueSize(), context.getMaxLogLinesPerSecond(), dropWhenFull);
+                logSink.start();
+            }
+            if (context.isFollowAllPods()) {
+                multiPodTailer = new MultiPodLogTailer(log, logSink, logFiles, context.getLogIncludePattern(), context.getLogExcludePattern());
+            }
+            addLogShutdownHook();
+        }
         Pod latestPod = null;
         boolean runningPod = false;
         PodList list = pods.list();
@@ -125,15 +154,13 @@ public class PodLogService {
                     case WAIT:
                     case OK:
                         if (latestPod == null || KubernetesResourceUtil.isNewerResource(pod, latestPod)) {
-                            if (ignorePodsOlderThan != null) {
-                                Date podCreateTime = KubernetesResourceUtil.getCreationTimestamp(pod);
-                                if (podCreateTime != null && podCreateTime.compareTo(ignorePodsOlderThan) > 0) {
-                                    latestPod = pod;
-                                }
-                            } else {
+                            if (isNotIgnored(pod, ignorePodsOlderThan)) {
                                 latestPod = pod;
                             }
                         }
+                        if (multiPodTailer != null && isNotIgnored(pod, ignorePodsOlderThan)) {
+                            onPod(Watcher.Action.ADDED, pod, kubernetes, namespace, ctrlCMessage, followLog);
+                        }
                         runningPod = true;
                         break;
 
@@ -145,7 +172,7 @@ public class PodLogService {
             }
         }
         // we may have missed the ADDED event so lets simulate one
-        if (latestPod != null) {
+        if (latestPod != null && multiPodTailer == null) {
             onPod(Watcher.Action.ADDED, latestPod, kubernetes, namespace, ctrlCMessage, followLog);
         }
         if (!watchAddedPodsOnly) {
@@ -155,6 +182,23 @@ public class PodLogService {
                 log.warn("Or did you stop it via `fabric8:stop`? If so try running the `fabric8:start` goal");
             }
         }
+        watchPods(pods, kubernetes, namespace, ctrlCMessage, followLog, INITIAL_POD_WATCH_BACKOFF_MILLIS);
+
+        if (waitInCurrentThread) {
+            while (terminateLatch.getCount() > 0) {
+                try {
+                    terminateLatch.await();
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    // A new watch starts with ADDED events for all existing pods, so nothing is missed when watching again
+    private void watchPods(final FilterWatchListDeletable<Pod, PodList, Boolean, Watch, Watcher<Pod>> pods,
+                           final KubernetesClient kubernetes, final String namespace, final String ctrlCMessage,
+                           final boolean followLog, final long backoff) {
         podWatcher = pods.watch(new Watcher<Pod>() {
             @Override
             public void eventReceived(Action action, Pod pod) {
@@ -163,29 +207,51 @@ public class PodLogService {
 
             @Override
             public void onClose(KubernetesClientException e) {
-                // ignore
-
+                if (e == null || terminated) {
+                    return;
+                }
+                log.warn("Watching pods failed, watching again in %d ms : %s", backoff, e.getMessage());
+                Thread rewatch = new Thread("pod log service rewatch") {
+                    @Override
+                    public void run() {
+                        try {
+                            Thread.sleep(backoff);
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                        if (!terminated) {
+                            watchPods(pods, kubernetes, namespace, ctrlCMessage, followLog,
+                                      Math.min(backoff * 2, MAX_POD_WATCH_BACKOFF_MILLIS));
+                        }
+                    }
+                };
+                rewatch.setDaemon(true);
+                rewatch.start();
             }
         });
+    }
 
-        if (waitInCurrentThread) {
-            while (terminateLatch.getCount() > 0) {
-                try {
-                    terminateLatch.await();
-                } catch (InterruptedException e) {
-                    // ignore
-                }
-            }
+    private boolean isNotIgnored(Pod pod, Date ignorePodsOlderThan) {
+        if (ignorePodsOlderThan == null) {
+            return true;
         }
+        Date podCreateTime = KubernetesResourceUtil.getCreationTimestamp(pod);
+        return podCreateTime != null && podCreateTime.compareTo(ignorePodsOlderThan) > 0;
     }
 
     private void onPod(Watcher.Action action, Pod pod, KubernetesClient kubernetes, String namespace, String ctrlCMessage, boolean followLog) {
+        if (multiPodTailer != null) {
+            onPodOfAll(action, pod, kubernetes, namespace);
+            return;
+        }
         String name = getName(pod);
         if (action.equals(Watcher.Action.DELETED)) {
             addedPods.remove(name);
             if (Objects.equals(watchingPodName, name)) {
                 watchingPodName = null;
                 addedPods.remove(name);
+                // Otherwise the watch would keep on trying to reconnect to the deleted pod
+                closeLogWatcher();
             }
         } else {
             if (action.equals(Watcher.Action.ADDED) || action.equals(Watcher.Action.MODIFIED)) {
@@ -206,6 +272,20 @@ public class PodLogService {
         }
     }
 
+    // Follow every running pod, pods are attached and detached as they come and go
+    private void onPodOfAll(Watcher.Action action, Pod pod, KubernetesClient kubernetes, String namespace) {
+        String name = getName(pod);
+        boolean attached = multiPodTailer.isAttached(name);
+        if (!action.equals(Watcher.Action.MODIFIED) || !attached) {
+            context.getNewPodLog().info("%s status: %s%s", name, getPodStatusDescription(pod), getPodStatusMessagePostfix(action));
+        }
+        if (action.equals(Watcher.Action.DELETED) || action.equals(Watcher.Action.ERROR)) {
+            multiPodTailer.detach(name);
+        } else if (isPodRunning(pod)) {
+            multiPodTailer.attach(kubernetes, namespace, pod, context.getLogContainerName());
+        }
+    }
+
     private void watchLogOfPodName(KubernetesClient kubernetes, String namespace, String ctrlCMessage, boolean followLog, Pod pod, String name) {
         if (watchingPodName == null || !watchingPodName.equals(name)) {
             if (logWatcher != null) {
@@ -217,14 +297,10 @@ public class PodLogService {
             String containerName = null;
             if (followLog) {
                 watchingPodName = name;
-                logWatchTerminateLatch = new CountDownLatch(1);
-                if (containers.size() < 2) {
-                    logWatcher = podResource.watchLog();
-                } else {
+                if (containers.size() >= 2) {
                     containerName = getLogContainerName(containers);
-                    logWatcher = podResource.inContainer(containerName).watchLog();
                 }
-                watchLog(logWatcher, name, "Failed to read log of pod " + name + ".", ctrlCMessage, containerName);
+                watchLog(kubernetes, namespace, name, ctrlCMessage, containerName);
             } else {
                 String logText;
                 if (containers.size() < 2) {
@@ -237,8 +313,11 @@ public class PodLogService {
                     String[] lines = logText.split("\n");
                     log.info("Log of pod: %s%s", name, containerNameMessage(containerName));
                     log.info("");
+                    LogLineFilter filter = createLogLineFilter();
                     for (String line : lines) {
-                        log.info("[[s]]%s", line);
+                        if (filter.accept(line)) {
+                            log.info("[[s]]%s", line);
+                        }
                     }
                 }
                 terminateLatch.countDown();
@@ -261,19 +340,70 @@ public class PodLogService {
     private void closeLogWatcher() {
         if (logWatcher != null) {
             logWatcher.close();
+            if (logWatcher.getLastTimestamp() != null) {
+                lastTimestamps.put(watchedLogKey, logWatcher.getLastTimestamp());
+            }
             logWatcher = null;
+            if (logFiles != null) {
+                logFiles.close(watchedLogPod, watchedLogContainer);
+            }
         }
-        if (logWatchTerminateLatch != null) {
-            logWatchTerminateLatch.countDown();
-        }
     }
 
-    private void watchLog(final LogWatch logWatcher, String podName, final String failureMessage, String ctrlCMessage, String containerName) {
+    private void createLogFiles() {
+        logFiles = new PodLogFiles(context.getLogDir(), context.getMaxLogFileSize(), context.getMaxRotatedLogFiles(), log);
+    }
+
+    // Stop the tailers, print the pending lines and close the files in this order. Registered independently of
+    // the on-exit hook, which exists only if an on-exit operation is configured.
+    private void addLogShutdownHook() {
+        Runtime.getRuntime().addShutdownHook(new Thread("pod log shutdown hook") {
+            @Override
+            public void run() {
+                closeMultiPodTailer();
+                if (logSink != null) {
+                    logSink.close();
+                }
+                if (logFiles != null) {
+                    logFiles.close();
+                }
+            }
+        });
+    }
+
+    private void watchLog(KubernetesClient kubernetes, String namespace, String podName, String ctrlCMessage, String containerName) {
         context.getNewPodLog().info("Tailing log of pod: " + podName + containerNameMessage(containerName));
         context.getNewPodLog().info("Press Ctrl-C to " + ctrlCMessage);
         context.getNewPodLog().info("");
 
-        KubernetesClientUtil.printLogsAsync(logWatcher, failureMessage, this.logWatchTerminateLatch, log);
+        watchedLogKey = Strings.isNotBlank(containerName) ? podName + "/" + containerName : podName;
+        watchedLogPod = podName;
+        watchedLogContainer = containerName;
+        final LogLineFilter filter = createLogLineFilter();
+        final RotatingLogFile file = logFiles != null ? logFiles.open(podName, containerName) : null;
+        logWatcher = new ResumableLogWatch(kubernetes, namespace, podName, containerName, lastTimestamps.get(watchedLogKey),
+                                           new LineSplitter.LineHandler() {
+                                               @Override
+                                               public void onLine(byte[] buffer, int offset, int length) {
+                                                   if (file != null) {
+                                                       logFiles.writeLine(file, buffer, offset, length);
+                                                   }
+                                                   if (logSink != null && filter.accept(buffer, offset, length)) {
+                                                       logSink.offer(null, buffer, offset, length);
+                                                   }
+                                               }
+                                           }, log);
+        logWatcher.start();
+    }
+
+    private LogLineFilter createLogLineFilter() {
+        return new LogLineFilter(context.getLogIncludePattern(), context.getLogExcludePattern());
+    }
+
+    private void closeMultiPodTailer() {
+        if (multiPodTailer != null) {
+            multiPodTailer.close();
+        }
     }
 
     private String containerNameMessage(String containerName) {
@@ -296,6 +426,17 @@ public class PodLogService {
 
         private String s2iBuildNameSuffix = "-s2i";
 
+        private boolean followAllPods;
+        private int logQueueSize = 10000;
+        private int maxLogLinesPerSecond;
+        private Pattern logIncludePattern;
+        private Pattern logExcludePattern;
+
+        private File logDir;
+        private boolean logToConsole = true;
+        private long maxLogFileSize = 10 * 1024 * 1024;
+        private int maxRotatedLogFiles = 5;
+
         public PodLogServiceContext() {
         }
 
@@ -323,6 +464,42 @@ public class PodLogService {
             return s2iBuildNameSuffix;
         }
 
+        public boolean isFollowAllPods() {
+            return followAllPods;
+        }
+
+        public int getLogQueueSize() {
+            return logQueueSize;
+        }
+
+        public int getMaxLogLinesPerSecond() {
+            return maxLogLinesPerSecond;
+        }
+
+        public Pattern getLogIncludePattern() {
+            return logIncludePattern;
+        }
+
+        public Pattern getLogExcludePattern() {
+            return logExcludePattern;
+        }
+
+        public File getLogDir() {
+            return logDir;
+        }
+
+        public boolean isLogToConsole() {
+            return logToConsole;
+        }
+
+        public long getMaxLogFileSize() {
+            return maxLogFileSize;
+        }
+
+        public int getMaxRotatedLogFiles() {
+            return maxRotatedLogFiles;
+        }
+
         public static class Builder {
 
             private PodLogServiceContext context;
@@ -365,6 +542,51 @@ public class PodLogService {
                 return this;
             }
 
+            public Builder followAllPods(boolean followAllPods) {
+                context.followAllPods = followAllPods;
+                return this;
+            }
+
+            public Builder logQueueSize(int logQueueSize) {
+                context.logQueueSize = logQueueSize;
+                return this;
+            }
+
+            public Builder maxLogLinesPerSecond(int maxLogLinesPerSecond) {
+                context.maxLogLinesPerSecond = maxLogLinesPerSecond;
+                return this;
+            }
+
+            public Builder logIncludePattern(Pattern logIncludePattern) {
+                context.logIncludePattern = logIncludePattern;
+                return this;
+            }
+
+            public Builder logExcludePattern(Pattern logExcludePattern) {
+                context.logExcludePattern = logExcludePattern;
+                return this;
+            }
+
+            public Builder logDir(File logDir) {
+                context.logDir = logDir;
+                return this;
+            }
+
+            public Builder logToConsole(boolean logToConsole) {
+                context.logToConsole = logToConsole;
+                return this;
+            }
+
+            public Builder maxLogFileSize(long maxLogFileSize) {
+                context.maxLogFileSize = maxLogFileSize;
+                return this;
+            }
+
+            public Builder maxRotatedLogFiles(int maxRotatedLogFiles) {
+                context.maxRotatedLogFiles = maxRotatedLogFiles;
+                return this;
+            }
+
             public PodLogServiceContext build() {
                 return context;
             }
@@ -0,0 +1,538 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import io.fabric8.kubernetes.client.utils.URLUtils;
+import io.fabric8.maven.docker.util.Logger;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okio.ByteString;
+
+/**
+ * Forwards local ports to pods over the port-forward websocket of the API server, without an external
+ * <code>kubectl</code> process. A single selector thread accepts the connections on all local ports and
+ * copies the data between the local sockets and their websockets.
+ *
+ * Each local connection gets its own websocket. The server starts it with one message per channel announcing
+ * the port. After that, every message starts with a channel byte: 0 for data and 1 for errors.
+ *
+ * Both directions apply backpressure. The local socket isn't read while too much data is queued for sending on
+ * the websocket, and the websocket isn't read while too much data is waiting to be written to the local socket.
+ *
+ * @since 17/10/26
+ */
+public class PodPortForwarder implements Closeable {
+
+    private static final byte DATA_CHANNEL = 0;
+    private static final byte ERROR_CHANNEL = 1;
+    // Messages sent by the server on opening, one per channel, which only contain the port
+    private static final int PORT_MESSAGES = 2;
+
+    private static final int BUFFER_SIZE = 16384;
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+
+    // Bytes queued per connection and direction before reading from the other side is paused
+    private static final long MAX_QUEUED_BYTES = 1024 * 1024;
+    // How often connections paused because of a full websocket queue are checked for resuming
+    private static final long RESUME_INTERVAL_MILLIS = 10;
+
+    private final OkHttpClient httpClient;
+    private final String masterUrl;
+    private final Logger log;
+
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    // Only used by the selector thread, one byte reserved for the channel
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(BUFFER_SIZE + 1);
+    // Connections not read because their websocket has too much data queued
+    private final Set<Connection> pausedReads = Collections.newSetFromMap(new ConcurrentHashMap<Connection, Boolean>());
+
+    private volatile boolean closed;
+    private Thread selectorThread;
+
+    /**
+     * @param httpClient client for opening the websockets, must be configured for the API server
+     * @param masterUrl URL of the API server
+     * @param log logger
+     * @throws IOException if the selector can't be opened
+     */
+    public PodPortForwarder(OkHttpClient httpClient, String masterUrl, Logger log) throws IOException {
+        this.httpClient = httpClient;
+        this.masterUrl = masterUrl;
+        this.log = log;
+        this.selector = Selector.open();
+    }
+
+    /**
+     * Start forwarding a local port to a port of a pod
+     *
+     * @param namespace namespace of the pod
+     * @param podName name of the pod
+     * @param remotePort port of the pod
+     * @param localPort local port to listen on, 0 for picking a free port
+     * @return the forward, to be closed for stopping it
+     * @throws IOException if the local port can't be bound
+     */
+    public Forward forward(String namespace, String podName, int remotePort, int localPort) throws IOException {
+        if (closed) {
+            throw new IOException("Port forwarder has been closed");
+        }
+        final ServerSocketChannel server = ServerSocketChannel.open();
+        try {
+            server.configureBlocking(false);
+            server.socket().setReuseAddress(true);
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), localPort));
+        } catch (IOException e) {
+            server.close();
+            throw e;
+        }
+        String url = URLUtils.join(masterUrl, "api", "v1", "namespaces", namespace, "pods", podName,
+                                   "portforward?ports=" + remotePort);
+        final Forward forward = new Forward(podName, remotePort, server, url);
+        runInSelector(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    server.register(selector, SelectionKey.OP_ACCEPT, forward);
+                } catch (IOException e) {
+                    log.error("Cannot listen on port %d for forwarding to %s: %s", forward.getLocalPort(), forward.podName, e);
+                    forward.closeNow();
+                }
+            }
+        });
+        startSelectorThread();
+        log.info("Forwarding localhost:%d to port %d of pod %s", forward.getLocalPort(), remotePort, podName);
+        return forward;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        if (selectorThread != null) {
+            // The selector thread closes the remaining forwards and the selector
+            selector.wakeup();
+        } else {
+            selector.close();
+        }
+    }
+
+    private synchronized void startSelectorThread() {
+        if (selectorThread == null) {
+            selectorThread = new Thread("port forward selector") {
+                @Override
+                public void run() {
+                    select();
+                }
+            };
+            selectorThread.setDaemon(true);
+            selectorThread.start();
+        }
+    }
+
+    private void select() {
+        try {
+            while (!closed) {
+                selector.select(pausedReads.isEmpty() ? 0 : RESUME_INTERVAL_MILLIS);
+                runTasks();
+                resumePausedReads();
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    Object attachment = key.attachment();
+                    if (attachment instanceof Forward) {
+                        accept((Forward) attachment);
+                    } else {
+                        Connection connection = (Connection) attachment;
+                        if (key.isReadable()) {
+                            connection.read();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.write();
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.error("Port forwarding stopped: %s", e);
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                Object attachment = key.attachment();
+                if (attachment instanceof Forward) {
+                    ((Forward) attachment).closeNow();
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    // okhttp doesn't signal when its send queue got drained, so it's checked after every select
+    private void resumePausedReads() {
+        Iterator<Connection> it = pausedReads.iterator();
+        while (it.hasNext()) {
+            Connection connection = it.next();
+            if (!connection.key.isValid()) {
+                it.remove();
+            } else if (connection.webSocket.queueSize() <= MAX_QUEUED_BYTES / 2) {
+                connection.key.interestOps(connection.key.interestOps() | SelectionKey.OP_READ);
+                it.remove();
+            }
+        }
+    }
+
+    // Tasks are run after the next select, i.e. after cancelled keys have been deregistered
+    private void runInSelector(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    private void accept(Forward forward) {
+        SocketChannel socket = null;
+        try {
+            socket = forward.server.accept();
+            if (socket == null) {
+                return;
+            }
+            socket.configureBlocking(false);
+            socket.socket().setTcpNoDelay(true);
+            Connection connection = new Connection(forward, socket);
+            connection.key = socket.register(selector, 0, connection);
+            forward.connections.add(connection);
+            log.debug("Opening connection to port %d of pod %s", forward.remotePort, forward.podName);
+            Request request = new Request.Builder().get().url(forward.url).build();
+            connection.webSocket = httpClient.newWebSocket(request, connection.createListener());
+        } catch (IOException e) {
+            log.warn("Cannot accept connection on port %d: %s", forward.getLocalPort(), e);
+            if (socket != null) {
+                try {
+                    socket.close();
+                } catch (IOException exp) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    // =======================================
+
+    /**
+     * A forwarded port
+     */
+    public class Forward implements Closeable {
+
+        private final String podName;
+        private final int remotePort;
+        private final ServerSocketChannel server;
+        private final String url;
+        private final Set<Connection> connections = Collections.newSetFromMap(new ConcurrentHashMap<Connection, Boolean>());
+        private final CountDownLatch closedLatch = new CountDownLatch(1);
+
+        private Forward(String podName, int remotePort, ServerSocketChannel server, String url) {
+            this.podName = podName;
+            this.remotePort = remotePort;
+            this.server = server;
+            this.url = url;
+        }
+
+        /**
+         * @return local port connections are accepted on
+         */
+        public int getLocalPort() {
+            return server.socket().getLocalPort();
+        }
+
+        /**
+         * Wait until the forward is closed
+         *
+         * @throws InterruptedException if interrupted while waiting
+         */
+        public void await() throws InterruptedException {
+            closedLatch.await();
+        }
+
+        /**
+         * Stop listening and close all connections. Returns when the local port is free again.
+         */
+        @Override
+        public void close() throws IOException {
+            if (closedLatch.getCount() == 0) {
+                return;
+            }
+            server.close();
+            if (Thread.currentThread() == selectorThread || closed) {
+                closeNow();
+                return;
+            }
+            final CountDownLatch done = new CountDownLatch(1);
+            runInSelector(new Runnable() {
+                @Override
+                public void run() {
+                    closeNow();
+                    done.countDown();
+                }
+            });
+            try {
+                done.await(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void closeNow() {
+            try {
+                server.close();
+            } catch (IOException e) {
+                // ignore
+            }
+            for (Connection connection : connections) {
+                connection.close();
+            }
+            closedLatch.countDown();
+        }
+    }
+
+    private class Connection {
+
+        private final Forward forward;
+        private final SocketChannel socket;
+        // Data received from the pod, not yet written to the local socket
+        private final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+
+        private SelectionKey key;
+        private volatile WebSocket webSocket;
+        private int messagesReceived;
+        private boolean remoteClosed;
+        // Bytes in the outbound queue, guarded by this connection
+        private long outboundBytes;
+        private boolean closed;
+
+        private Connection(Forward forward, SocketChannel socket) {
+            this.forward = forward;
+            this.socket = socket;
+        }
+
+        // Called from the selector thread when the local socket has data
+        private void read() {
+            readBuffer.clear();
+            readBuffer.put(DATA_CHANNEL);
+            try {
+                int read = socket.read(readBuffer);
+                if (read < 0) {
+                    close();
+                } else if (read > 0) {
+                    readBuffer.flip();
+                    if (!webSocket.send(ByteString.of(readBuffer))) {
+                        close();
+                    } else if (webSocket.queueSize() > MAX_QUEUED_BYTES) {
+                        // The pod doesn't keep up, stop reading until the websocket has sent most of it
+                        key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+                        pausedReads.add(this);
+                    }
+                }
+            } catch (IOException e) {
+                log.debug("Cannot read from local connection to %s: %s", forward.podName, e);
+                close();
+            }
+        }
+
+        // Called from the selector thread when the local socket accepts data
+        private void write() {
+            try {
+                ByteBuffer buffer;
+                while ((buffer = outbound.peek()) != null) {
+                    int written = socket.write(buffer);
+                    if (written > 0) {
+                        releaseOutbound(written);
+                    }
+                    if (buffer.hasRemaining()) {
+                        return;
+                    }
+                    outbound.poll();
+                }
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                if (remoteClosed) {
+                    close();
+                }
+            } catch (IOException e) {
+                log.debug("Cannot write to local connection to %s: %s", forward.podName, e);
+                close();
+            }
+        }
+
+        // Add data received from the pod. Blocks the websocket reader while the local socket doesn't keep up.
+        private void addOutbound(ByteBuffer buffer) {
+            synchronized (this) {
+                outboundBytes += buffer.remaining();
+            }
+            outbound.add(buffer);
+            addInterest(SelectionKey.OP_WRITE);
+            synchronized (this) {
+                try {
+                    while (outboundBytes > MAX_QUEUED_BYTES && !closed) {
+                        wait();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private synchronized void releaseOutbound(int bytes) {
+            outboundBytes -= bytes;
+            if (outboundBytes <= MAX_QUEUED_BYTES) {
+                notifyAll();
+            }
+        }
+
+        // Must be called from the selector thread
+        private void close() {
+            if (!forward.connections.remove(this)) {
+                return;
+            }
+            synchronized (this) {
+                closed = true;
+                notifyAll();
+            }
+            pausedReads.remove(this);
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // ignore
+            }
+            WebSocket ws = webSocket;
+            if (ws != null) {
+                ws.close(1000, "Connection closed");
+            }
+        }
+
+        private void addInterest(final int ops) {
+            runInSelector(new Runnable() {
+                @Override
+                public void run() {
+                    if (key.isValid()) {
+                        key.interestOps(key.interestOps() | ops);
+                    }
+                }
+            });
+        }
+
+        private void closeInSelector(final boolean afterFlush) {
+            runInSelector(new Runnable() {
+                @Override
+                public void run() {
+                    if (afterFlush && !outbound.isEmpty() && key.isValid()) {
+                        remoteClosed = true;
+                        key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                    } else {
+                        close();
+                    }
+                }
+            });
+        }
+
+        private WebSocketListener createListener() {
+            return new WebSocketListener() {
+                @Override
+                public void onOpen(WebSocket webSocket, Response response) {
+                    addInterest(SelectionKey.OP_READ);
+                }
+
+                @Override
+                public void onMessage(WebSocket webSocket, ByteString bytes) {
+                    if (++messagesReceived <= PORT_MESSAGES) {
+                        return;
+                    }
+                    ByteBuffer buffer = bytes.asByteBuffer();
+                    if (!buffer.hasRemaining()) {
+                        return;
+                    }
+                    byte channel = buffer.get();
+                    if (channel == DATA_CHANNEL) {
+                        if (buffer.hasRemaining()) {
+                            addOutbound(buffer);
+                        }
+                    } else if (channel == ERROR_CHANNEL) {
+                        log.warn("Error when forwarding to port %d of pod %s: %s",
+                                 forward.remotePort, forward.podName, StandardCharsets.UTF_8.decode(buffer));
+                        closeInSelector(false);
+                    }
+                }
+
+                @Override
+                public void onMessage(WebSocket webSocket, String text) {
+                    onMessage(webSocket, ByteString.encodeUtf8(text));
+                }
+
+                @Override
+                public void onClosing(WebSocket webSocket, int code, String reason) {
+                    webSocket.close(code, reason);
+                    closeInSelector(true);
+                }
+
+                @Override
+                public void onClosed(WebSocket webSocket, int code, String reason) {
+                    closeInSelector(true);
+                }
+
+                @Override
+                public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+                    log.warn("Port forwarding to pod %s failed: %s", forward.podName,
+                             response != null ? "HTTP " + response.code() + " " + response.message() : t.getMessage());
+                    closeInSelector(false);
+                }
+            };
+        }
+    }
+}
@@ -32,6 +32,7 @@ import io.fabric8.kubernetes.api.PodStatusType;
 import io.fabric8.kubernetes.api.model.LabelSelector;
 import io.fabric8.kubernetes.api.model.Pod;
 import io.fabric8.kubernetes.api.model.PodList;
+import io.fabric8.kubernetes.client.HttpClientAware;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.KubernetesClientException;
 import io.fabric8.kubernetes.client.Watch;
@@ -57,6 +58,10 @@ public class PortForwardService {
 
     private KubernetesClient kubernetes;
 
+    private PodPortForwarder podPortForwarder;
+
+    private int openForwards;
+
     public PortForwardService(ClientToolsService clientToolsService, Logger log, KubernetesClient kubernetes) {
         this.clientToolsService = Objects.requireNonNull(clientToolsService, "clientToolsService");
         this.log = Objects.requireNonNull(log, "log");
@@ -228,11 +233,97 @@ public class PortForwardService {
         return targetPod;
     }
 
+    /**
+     * Forwards a port to a pod and blocks until the forwarding stops.
+     */
     public void forwardPort(Logger externalProcessLogger, String pod, int remotePort, int localPort) throws Fabric8ServiceException {
-        forwardPortAsync(externalProcessLogger, pod, remotePort, localPort).await();
+        if (!isInProcessForwardingSupported()) {
+            forwardPortWithKubectl(externalProcessLogger, pod, remotePort, localPort).await();
+            return;
+        }
+        PodPortForwarder.Forward forward = openForward(pod, remotePort, localPort);
+        try {
+            forward.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeForward(forward);
+        }
+    }
+
+    /**
+     * Forwards a port to a pod. The connections are handled within this JVM over the port-forward websocket of
+     * the API server, <code>kubectl port-forward</code> is only used when the client doesn't expose its
+     * HTTP client.
+     *
+     * @return handle for stopping the forwarding
+     */
+    public Closeable forwardPortAsync(Logger externalProcessLogger, String pod, int remotePort, int localPort) throws Fabric8ServiceException {
+        if (!isInProcessForwardingSupported()) {
+            return forwardPortWithKubectl(externalProcessLogger, pod, remotePort, localPort);
+        }
+        final PodPortForwarder.Forward forward = openForward(pod, remotePort, localPort);
+        return new Closeable() {
+            private boolean closed;
+
+            @Override
+            public void close() throws IOException {
+                synchronized (this) {
+                    if (closed) {
+                        return;
+                    }
+                    closed = true;
+                }
+                closeForward(forward);
+            }
+        };
+    }
+
+    private boolean isInProcessForwardingSupported() {
+        return kubernetes instanceof HttpClientAware;
+    }
+
+    // All forwards share a single forwarder, so that a single selector thread serves all local ports
+    private synchronized PodPortForwarder.Forward openForward(String pod, int remotePort, int localPort) throws Fabric8ServiceException {
+        try {
+            if (podPortForwarder == null) {
+                podPortForwarder = new PodPortForwarder(((HttpClientAware) kubernetes).getHttpClient(),
+                                                        kubernetes.getMasterUrl().toString(), log);
+            }
+            PodPortForwarder.Forward forward = podPortForwarder.forward(kubernetes.getNamespace(), pod, remotePort, localPort);
+            openForwards++;
+            return forward;
+        } catch (IOException e) {
+            closeForwarderIfUnused();
+            throw new Fabric8ServiceException("Cannot forward local port " + localPort + " to pod " + pod, e);
+        }
+    }
+
+    // The forwarder with its selector thread is closed together with the last forward
+    private void closeForward(PodPortForwarder.Forward forward) {
+        try {
+            forward.close();
+        } catch (IOException e) {
+            log.warn("Cannot close port-forward to pod: %s", e);
+        }
+        synchronized (this) {
+            openForwards--;
+            closeForwarderIfUnused();
+        }
+    }
+
+    private synchronized void closeForwarderIfUnused() {
+        if (openForwards <= 0 && podPortForwarder != null) {
+            try {
+                podPortForwarder.close();
+            } catch (IOException e) {
+                log.warn("Cannot close port forwarder: %s", e);
+            }
+            podPortForwarder = null;
+        }
     }
 
-    public ProcessUtil.ProcessExecutionContext forwardPortAsync(Logger externalProcessLogger, String pod, int remotePort, int localPort) throws Fabric8ServiceException {
+    private ProcessUtil.ProcessExecutionContext forwardPortWithKubectl(Logger externalProcessLogger, String pod, int remotePort, int localPort) throws Fabric8ServiceException {
         File command = clientToolsService.getKubeCtlExecutable();
         log.info("Port forwarding to port " + remotePort + " on pod " + pod + " using command " + command);
 
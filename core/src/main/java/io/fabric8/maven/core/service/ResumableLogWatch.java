@@ -0,0 +1,363 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import io.fabric8.kubernetes.api.model.ContainerStateTerminated;
+import io.fabric8.kubernetes.api.model.ContainerStatus;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodStatus;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.maven.core.util.LineSplitter;
+import io.fabric8.maven.docker.util.Logger;
+import io.fabric8.utils.Strings;
+import io.fabric8.utils.URLUtils;
+import okhttp3.Call;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Follows the log of a single container and reconnects when the log stream ends or fails, e.g. because
+ * of a connection problem or a restarted container. Reconnects use an exponential backoff and only ask for
+ * the lines written since the last line received, so that the log isn't replayed from the beginning.
+ *
+ * The log is requested with a timestamp in front of every line. Reconnects resume with <code>sinceTime</code>,
+ * which the API server only accepts with a precision of seconds, so lines at or before the timestamp of the
+ * last line already received are dropped. Only new lines reset the backoff. Following stops when the pod is
+ * gone or the container has terminated for good.
+ *
+ * @since 17/10/26
+ */
+public class ResumableLogWatch implements Closeable {
+
+    private static final long INITIAL_BACKOFF_MILLIS = 1000;
+    private static final long MAX_BACKOFF_MILLIS = 30000;
+
+    private final KubernetesClient kubernetes;
+    private final String namespace;
+    private final String podName;
+    private final String containerName;
+    private final LineSplitter.LineHandler handler;
+    private final Logger log;
+    // Reused across reconnects
+    private final LineSplitter splitter = new LineSplitter();
+
+    // Timestamp of the last line in nanoseconds since the epoch, or null if no line was received yet
+    private volatile Long lastTimestamp;
+    private volatile boolean closed;
+    private Call call;
+
+    /**
+     * @param kubernetes client to use
+     * @param namespace namespace of the pod
+     * @param podName pod whose log to follow
+     * @param containerName container whose log to follow, can be <code>null</code> for single container pods
+     * @param lastTimestamp timestamp of the last line already seen from an earlier watch as returned by
+     *                      {@link #getLastTimestamp()}, <code>null</code> for reading the whole log
+     * @param handler called for every line from the watch thread, with a buffer which is reused for the next line.
+     *                The timestamp is not part of the line.
+     * @param log logger for reporting reconnects
+     */
+    public ResumableLogWatch(KubernetesClient kubernetes, String namespace, String podName, String containerName,
+                             Long lastTimestamp, LineSplitter.LineHandler handler, Logger log) {
+        this.kubernetes = kubernetes;
+        this.namespace = namespace;
+        this.podName = podName;
+        this.containerName = containerName;
+        this.lastTimestamp = lastTimestamp;
+        this.handler = handler;
+        this.log = log;
+    }
+
+    /**
+     * Start following the log in a background thread
+     */
+    public void start() {
+        Thread thread = new Thread("log watch " + getDescription()) {
+            @Override
+            public void run() {
+                follow();
+            }
+        };
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return timestamp of the last line received in nanoseconds since the epoch, as reported by the cluster,
+     * or <code>null</code> if no line has been received yet. Can be used to resume a later watch of the same
+     * container.
+     */
+    public Long getLastTimestamp() {
+        return lastTimestamp;
+    }
+
+    @Override
+    public void close() {
+        Call current;
+        synchronized (this) {
+            closed = true;
+            current = call;
+            call = null;
+        }
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    // Runs in the watch thread until the log is closed or the container is done. Called directly by tests.
+    void follow() {
+        long backoff = INITIAL_BACKOFF_MILLIS;
+        while (!closed) {
+            try (Response response = open()) {
+                if (response.code() == 404) {
+                    log.info("Pod %s is gone, stopped following its log", podName);
+                    return;
+                }
+                if (response.isSuccessful()) {
+                    if (readLines(response.body().byteStream())) {
+                        backoff = INITIAL_BACKOFF_MILLIS;
+                    }
+                } else {
+                    // E.g. a container which is still waiting to be started
+                    log.debug("Cannot read log of %s: %d %s", getDescription(), response.code(), response.message());
+                }
+                if (closed) {
+                    return;
+                }
+                if (isContainerDone()) {
+                    log.info("Container %s has terminated, stopped following its log", getDescription());
+                    return;
+                }
+                log.debug("Log stream of %s ended, reconnecting in %d ms", getDescription(), backoff);
+            } catch (IOException | KubernetesClientException e) {
+                if (closed) {
+                    return;
+                }
+                log.warn("Failed to read log of %s, reconnecting in %d ms : %s", getDescription(), backoff, e.getMessage());
+            } finally {
+                synchronized (this) {
+                    call = null;
+                }
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                return;
+            }
+            backoff = getNextBackoff(backoff);
+        }
+    }
+
+    private Response open() throws IOException {
+        HttpUrl.Builder url = HttpUrl.parse(URLUtils.pathJoin(kubernetes.getMasterUrl().toString(), "api/v1/namespaces",
+                                                              namespace, "pods", podName, "log"))
+                                     .newBuilder()
+                                     .addQueryParameter("follow", "true")
+                                     .addQueryParameter("timestamps", "true");
+        if (Strings.isNotBlank(containerName)) {
+            url.addQueryParameter("container", containerName);
+        }
+        Long since = lastTimestamp;
+        if (since != null) {
+            url.addQueryParameter("sinceTime", formatSinceTime(since));
+        }
+        // A followed log can be quiet for any time
+        OkHttpClient httpClient = kubernetes.adapt(OkHttpClient.class).newBuilder()
+                                            .readTimeout(0, TimeUnit.MILLISECONDS)
+                                            .build();
+        Call newCall = httpClient.newCall(new Request.Builder().get().url(url.build()).build());
+        synchronized (this) {
+            if (closed) {
+                throw new KubernetesClientException("Log watch has been closed");
+            }
+            call = newCall;
+        }
+        return newCall.execute();
+    }
+
+    // Return true if at least one new line has been read
+    private boolean readLines(InputStream in) throws IOException {
+        final boolean[] received = new boolean[1];
+        splitter.split(in, new LineSplitter.LineHandler() {
+            @Override
+            public void onLine(byte[] buffer, int offset, int length) {
+                if (closed) {
+                    return;
+                }
+                int space = indexOf(buffer, offset, length, (byte) ' ');
+                long timestamp = space < 0 ? -1 : parseTimestamp(buffer, offset, space - offset);
+                if (timestamp < 0) {
+                    // Not prefixed by a timestamp, pass it on as it is
+                    received[0] = true;
+                    handler.onLine(buffer, offset, length);
+                    return;
+                }
+                Long last = lastTimestamp;
+                if (last != null && timestamp <= last) {
+                    // Already seen before the reconnect
+                    return;
+                }
+                lastTimestamp = timestamp;
+                received[0] = true;
+                handler.onLine(buffer, space + 1, length - (space + 1 - offset));
+            }
+        });
+        return received[0];
+    }
+
+    // Whether the container won't write to its log anymore, because the pod is gone or the container has
+    // terminated and won't be restarted
+    private boolean isContainerDone() {
+        Pod pod;
+        try {
+            pod = kubernetes.pods().inNamespace(namespace).withName(podName).get();
+        } catch (KubernetesClientException e) {
+            log.debug("Cannot check state of %s: %s", getDescription(), e.getMessage());
+            return false;
+        }
+        if (pod == null) {
+            return true;
+        }
+        PodStatus status = pod.getStatus();
+        if (status == null || status.getContainerStatuses() == null) {
+            return false;
+        }
+        String phase = status.getPhase();
+        String restartPolicy = pod.getSpec() != null ? pod.getSpec().getRestartPolicy() : null;
+        for (ContainerStatus containerStatus : status.getContainerStatuses()) {
+            if (Strings.isNotBlank(containerName) && !containerName.equals(containerStatus.getName())) {
+                continue;
+            }
+            ContainerStateTerminated terminated =
+                containerStatus.getState() != null ? containerStatus.getState().getTerminated() : null;
+            if (terminated == null) {
+                return false;
+            }
+            return "Succeeded".equals(phase) || "Failed".equals(phase) ||
+                   "Never".equals(restartPolicy) ||
+                   ("OnFailure".equals(restartPolicy) && terminated.getExitCode() != null && terminated.getExitCode() == 0);
+        }
+        return false;
+    }
+
+    private String getDescription() {
+        return Strings.isNotBlank(containerName) ? podName + "/" + containerName : podName;
+    }
+
+    private static int indexOf(byte[] buffer, int offset, int length, byte value) {
+        for (int i = offset; i < offset + length; i++) {
+            if (buffer[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // The API server accepts only whole seconds, so lines within the second of the last line are sent again
+    static String formatSinceTime(long timestampNanos) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(new Date(TimeUnit.NANOSECONDS.toMillis(timestampNanos)));
+    }
+
+    /**
+     * Parse an RFC 3339 timestamp like <code>2017-10-26T08:15:30.123456789Z</code> as written by the kubelet
+     * in front of each line, without creating any objects.
+     *
+     * @return nanoseconds since the epoch or -1 if the bytes are not a timestamp
+     */
+    static long parseTimestamp(byte[] buffer, int offset, int length) {
+        if (length < 20 || buffer[offset + 4] != '-' || buffer[offset + 7] != '-' || buffer[offset + 10] != 'T' ||
+            buffer[offset + 13] != ':' || buffer[offset + 16] != ':') {
+            return -1;
+        }
+        int year = parseDigits(buffer, offset, 4);
+        int month = parseDigits(buffer, offset + 5, 2);
+        int day = parseDigits(buffer, offset + 8, 2);
+        int hour = parseDigits(buffer, offset + 11, 2);
+        int minute = parseDigits(buffer, offset + 14, 2);
+        int second = parseDigits(buffer, offset + 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31 || hour < 0 || minute < 0 || second < 0) {
+            return -1;
+        }
+
+        int idx = offset + 19;
+        int end = offset + length;
+        long nanos = 0;
+        if (buffer[idx] == '.') {
+            idx++;
+            long scale = TimeUnit.SECONDS.toNanos(1);
+            while (idx < end && buffer[idx] >= '0' && buffer[idx] <= '9') {
+                scale /= 10;
+                nanos += (buffer[idx] - '0') * scale;
+                idx++;
+            }
+        }
+
+        long offsetSeconds;
+        if (idx == end - 1 && buffer[idx] == 'Z') {
+            offsetSeconds = 0;
+        } else if (idx == end - 6 && (buffer[idx] == '+' || buffer[idx] == '-') && buffer[idx + 3] == ':') {
+            int offsetHours = parseDigits(buffer, idx + 1, 2);
+            int offsetMinutes = parseDigits(buffer, idx + 4, 2);
+            if (offsetHours < 0 || offsetMinutes < 0) {
+                return -1;
+            }
+            offsetSeconds = (buffer[idx] == '+' ? 1 : -1) * (offsetHours * 3600L + offsetMinutes * 60L);
+        } else {
+            return -1;
+        }
+
+        long seconds = daysFromCivil(year, month, day) * 86400L + hour * 3600L + minute * 60L + second - offsetSeconds;
+        return seconds * TimeUnit.SECONDS.toNanos(1) + nanos;
+    }
+
+    private static int parseDigits(byte[] buffer, int offset, int count) {
+        int ret = 0;
+        for (int i = offset; i < offset + count; i++) {
+            if (buffer[i] < '0' || buffer[i] > '9') {
+                return -1;
+            }
+            ret = ret * 10 + buffer[i] - '0';
+        }
+        return ret;
+    }
+
+    // Days since 1970-01-01 of a date in the proleptic Gregorian calendar
+    private static long daysFromCivil(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = (y >= 0 ? y : y - 399) / 400;
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    static long getNextBackoff(long backoff) {
+        return Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+    }
+}
@@ -24,6 +24,7 @@ import io.fabric8.kubernetes.api.KubernetesHelper;
 import io.fabric8.kubernetes.api.model.*;
 import io.fabric8.kubernetes.client.KubernetesClientException;
 import io.fabric8.maven.core.util.KubernetesResourceUtil;
+import io.fabric8.maven.core.util.ManifestReader;
 import io.fabric8.maven.core.util.ResourceFileType;
 import io.fabric8.maven.docker.util.ImageName;
 import io.fabric8.maven.docker.util.Logger;
@@ -120,11 +121,14 @@ public class ImageStreamService {
         // If it already exists, read in the file and use it for update
         Map<String, ImageStream> imageStreams = new HashMap<>();
         if (target.length() > 0) {
-            for (HasMetadata entity : KubernetesResourceUtil.loadResources(target)) {
-                if ("ImageStream".equals(KubernetesHelper.getKind(entity))) {
-                    imageStreams.put(entity.getMetadata().getName(), (ImageStream) entity);
+            try (ManifestReader reader = KubernetesResourceUtil.streamResources(target)) {
+                HasMetadata entity;
+                while ((entity = reader.read()) != null) {
+                    if ("ImageStream".equals(KubernetesHelper.getKind(entity))) {
+                        imageStreams.put(entity.getMetadata().getName(), (ImageStream) entity);
+                    }
+                    // Ignore all other kind of entities. There shouldn't be any included anyway
                 }
-                // Ignore all other kind of entities. There shouldn't be any included anyway
             }
         }
         return imageStreams;
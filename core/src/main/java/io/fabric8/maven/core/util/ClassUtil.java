@@ -22,7 +22,6 @@ import java.net.URLClassLoader;
 import java.util.*;
 
 import io.fabric8.maven.docker.util.Logger;
-import javassist.*;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.maven.project.MavenProject;
 
@@ -48,7 +47,7 @@ public class ClassUtil {
         return ret;
     }
 
-    private static ClassLoader[] mergeClassLoaders(List<ClassLoader> additionalClassLoaders) {
+    static ClassLoader[] mergeClassLoaders(List<ClassLoader> additionalClassLoaders) {
         ClassLoader[] classLoaders;
 
         if (additionalClassLoaders != null && !additionalClassLoaders.isEmpty()) {
@@ -113,72 +112,14 @@ public class ClassUtil {
         if (!rootDir.isDirectory()) {
             throw new IllegalArgumentException(String.format("Path %s is not a directory",rootDir.getPath()));
         }
-        findClasses(ret, rootDir, rootDir.getAbsolutePath() + "/");
-        return ret;
-    }
-
-    // ========================================================================
-
-    private static final FileFilter DIR_FILTER = new FileFilter() {
-        @Override
-        public boolean accept(File pathname) {
-            return pathname.isDirectory() && !pathname.getName().startsWith(".");
-        }
-    };
-
-    private static final FileFilter CLASS_FILE_FILTER = new FileFilter() {
-		@Override
-        public boolean accept(File file) {
-            return (file.isFile() && file.getName().endsWith(".class"));
-		}
-	};
-
-
-    private static void findClasses(List<String> classes, File dir, String prefix) throws IOException {
-        for (File subDir : dir.listFiles(DIR_FILTER)) {
-            findClasses(classes, subDir, prefix);
-        }
-
-        for (File classFile : dir.listFiles(CLASS_FILE_FILTER)) {
-            try (InputStream is = new FileInputStream(classFile)) {
-                if (hasMainMethod(is)) {
-                    classes.add(convertToClass(classFile.getAbsolutePath(), prefix));
-                }
-            }
-        }
-    }
-
-    private static boolean hasMainMethod(InputStream is) throws IOException {
-        try {
-            ClassPool pool = ClassPool.getDefault();
-            CtClass ctClass = pool.makeClass(is);
-            CtClass stringClass = pool.get("java.lang.String[]");
-            CtMethod mainMethod = ctClass.getDeclaredMethod("main", new CtClass[] { stringClass });
-            return mainMethod.getReturnType() == CtClass.voidType &&
-                   Modifier.isStatic(mainMethod.getModifiers()) &&
-                   Modifier.isPublic(mainMethod.getModifiers());
-        } catch (NotFoundException e) {
-            return false;
-        }
+        return MainClassScanner.findMainClasses(rootDir);
     }
 
-    private static String convertToClass(String name, String prefix) {
-        String ret = name.replaceAll("[/\\\\]", ".");
-        ret = ret.substring(0, name.length() - ".class".length());
-        return ret.substring(prefix.length());
-    }
-
-
     public static URLClassLoader createProjectClassLoader(final MavenProject project, Logger log) {
 
         try {
 
-            List<URL> compileJars = new ArrayList<>();
-
-            for (String element : project.getCompileClasspathElements()) {
-                compileJars.add(new File(element).toURI().toURL());
-            }
-
+            List<URL> compileJars = ClasspathIndex.forProject(project).getUrls();
             return new URLClassLoader(compileJars.toArray(new URL[compileJars.size()]),
                     PluginServiceFactory.class.getClassLoader());
 
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Index of the classes available on the compile classpath of a project. Jar files are indexed
+ * by reading their central directory only once, so that looking up a class doesn't require a class loader.
+ * Classes in directories like the project's output directory are looked up directly in the file system,
+ * so that classes compiled after the index has been created are found, too.
+ *
+ * The index of a project is created once and stored in the project's context.
+ *
+ * @since 17/10/26
+ */
+public class ClasspathIndex {
+
+    private static final String CONTEXT_KEY = ClasspathIndex.class.getName();
+
+    // Index of a jar file, reused across projects as long as the jar doesn't change. Bounded, so that
+    // long running JVMs don't keep the index of every jar they have ever seen.
+    private static final int JAR_INDEX_CACHE_SIZE = 512;
+    private static final Map<String, JarIndex> JAR_INDEX_CACHE =
+        new LinkedHashMap<String, JarIndex>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, JarIndex> eldest) {
+                return size() > JAR_INDEX_CACHE_SIZE;
+            }
+        };
+
+    private final List<String> classpathElements;
+    private final List<File> directories = new ArrayList<>();
+    private final Set<String> jarClasses = new HashSet<>();
+
+    ClasspathIndex(List<String> classpathElements) {
+        this.classpathElements = classpathElements;
+        for (String element : classpathElements) {
+            File file = new File(element);
+            if (file.isDirectory()) {
+                directories.add(file);
+            } else if (file.isFile()) {
+                jarClasses.addAll(getJarIndex(file).classes);
+            }
+        }
+    }
+
+    /**
+     * Get the index for the compile classpath of the given project. The index is created only once
+     * and is recreated only when the classpath of the project changes.
+     *
+     * @param project project to index
+     * @return the classpath index
+     */
+    public static ClasspathIndex forProject(MavenProject project) {
+        List<String> elements = getCompileClasspathElements(project);
+        synchronized (project) {
+            Object cached = project.getContextValue(CONTEXT_KEY);
+            if (cached instanceof ClasspathIndex && ((ClasspathIndex) cached).classpathElements.equals(elements)) {
+                return (ClasspathIndex) cached;
+            }
+            ClasspathIndex index = new ClasspathIndex(elements);
+            project.setContextValue(CONTEXT_KEY, index);
+            return index;
+        }
+    }
+
+    /**
+     * Check whether a class is on the classpath
+     *
+     * @param className fully qualified class name
+     * @return true if the class can be found
+     */
+    public boolean hasClass(String className) {
+        String resource = className.replace('.', '/') + ".class";
+        if (jarClasses.contains(resource)) {
+            return true;
+        }
+        for (File dir : directories) {
+            if (new File(dir, resource).isFile()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the indexed classpath as URLs, e.g. for creating a class loader
+     *
+     * @return list of URLs, in classpath order
+     */
+    public List<URL> getUrls() {
+        List<URL> ret = new ArrayList<>();
+        for (String element : classpathElements) {
+            try {
+                ret.add(new File(element).toURI().toURL());
+            } catch (MalformedURLException e) {
+                throw new IllegalArgumentException(String.format("Cannot convert %s to a an URL: %s", element, e.getMessage()), e);
+            }
+        }
+        return ret;
+    }
+
+    // ==================================================================================================
+
+    private static List<String> getCompileClasspathElements(MavenProject project) {
+        try {
+            List<String> ret = new ArrayList<>();
+            String outputDirectory = project.getBuild() != null ? project.getBuild().getOutputDirectory() : null;
+            if (outputDirectory != null) {
+                ret.add(outputDirectory);
+            }
+            List<String> elements = project.getCompileClasspathElements();
+            if (elements != null) {
+                for (String element : elements) {
+                    if (element != null && !element.equals(outputDirectory)) {
+                        ret.add(element);
+                    }
+                }
+            }
+            return ret;
+        } catch (DependencyResolutionRequiredException e) {
+            throw new IllegalArgumentException("Cannot resolve artifact from compile classpath", e);
+        }
+    }
+
+    private static JarIndex getJarIndex(File jar) {
+        String key = jar.getAbsolutePath();
+        synchronized (JAR_INDEX_CACHE) {
+            JarIndex index = JAR_INDEX_CACHE.get(key);
+            if (index == null || !index.isUpToDate(jar)) {
+                index = new JarIndex(jar);
+                JAR_INDEX_CACHE.put(key, index);
+            }
+            return index;
+        }
+    }
+
+    // Class file entries of a single jar
+    private static class JarIndex {
+
+        private final long lastModified;
+        private final long length;
+        private final Set<String> classes;
+
+        JarIndex(File jar) {
+            this.lastModified = jar.lastModified();
+            this.length = jar.length();
+            this.classes = readClassEntries(jar);
+        }
+
+        boolean isUpToDate(File jar) {
+            return jar.lastModified() == lastModified && jar.length() == length;
+        }
+
+        private static Set<String> readClassEntries(File jar) {
+            Set<String> ret = new HashSet<>();
+            try (ZipFile zip = new ZipFile(jar)) {
+                Enumeration<? extends ZipEntry> entries = zip.entries();
+                while (entries.hasMoreElements()) {
+                    String name = entries.nextElement().getName();
+                    if (name.endsWith(".class")) {
+                        ret.add(name);
+                    }
+                }
+            } catch (IOException e) {
+                // Not a valid archive, which is ignored like a class loader would do
+                return Collections.emptySet();
+            }
+            return ret;
+        }
+    }
+}
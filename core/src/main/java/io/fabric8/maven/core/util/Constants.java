@@ -22,4 +22,5 @@ package io.fabric8.maven.core.util;
 public class Constants {
     public static final String RESOURCE_SOURCE_URL_ANNOTATION = "maven.fabric8.io/source-url";
     public static final String RESOURCE_APP_CATALOG_ANNOTATION = "maven.fabric8.io/app-catalog";
+    public static final String RESOURCE_CONTENT_HASH_ANNOTATION = "maven.fabric8.io/content-hash";
 }
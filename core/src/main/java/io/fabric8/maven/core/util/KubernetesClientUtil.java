@@ -16,16 +16,23 @@
 
 package io.fabric8.maven.core.util;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import io.fabric8.kubernetes.api.Controller;
 import io.fabric8.kubernetes.api.KubernetesHelper;
@@ -41,6 +48,7 @@ import io.fabric8.kubernetes.api.model.LabelSelector;
 import io.fabric8.kubernetes.api.model.LabelSelectorRequirement;
 import io.fabric8.kubernetes.api.model.extensions.ReplicaSet;
 import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
 import io.fabric8.kubernetes.client.Watch;
 import io.fabric8.kubernetes.client.Watcher;
 import io.fabric8.kubernetes.client.dsl.FilterWatchListDeletable;
@@ -94,6 +102,27 @@ public class KubernetesClientUtil {
 
 
     public static void deleteEntities(KubernetesClient kubernetes, String namespace, Set<HasMetadata> entities, String s2iBuildNameSuffix, Logger log) {
+        deleteEntities(kubernetes, namespace, entities, s2iBuildNameSuffix, 1, 0, log);
+    }
+
+    /**
+     * Delete entities, optionally in parallel and waiting for them to be gone.
+     *
+     * When deleting in parallel or when waiting, the entities are deleted tier by tier in the reverse order
+     * in which they are applied (see {@link KubernetesResourceUtil#groupByApplyTier(Collection)}): controllers
+     * before services before config maps and secrets. The entities of a tier are deleted concurrently.
+     *
+     * @param kubernetes client to use
+     * @param namespace namespace to delete the entities from
+     * @param entities entities to delete
+     * @param s2iBuildNameSuffix suffix of s2i build configs to delete along with image streams
+     * @param parallelism maximum number of entities to delete concurrently
+     * @param waitSeconds if &gt; 0 wait until all deleted entities and the pods of deleted controllers are gone,
+     *                    but not longer than this number of seconds in total
+     * @param log logger
+     */
+    public static void deleteEntities(KubernetesClient kubernetes, String namespace, Set<HasMetadata> entities,
+                                      String s2iBuildNameSuffix, int parallelism, long waitSeconds, Logger log) {
         List<HasMetadata> list = new ArrayList<>(entities);
 
         // For OpenShift cluster, also delete s2i buildconfig
@@ -109,12 +138,204 @@ public class KubernetesClientUtil {
             }
         }
 
+        if (parallelism > 1 || waitSeconds > 0) {
+            deleteEntitiesInTiers(kubernetes, namespace, list, Math.max(parallelism, 1), waitSeconds, log);
+            return;
+        }
+
         // lets delete in reverse order
         Collections.reverse(list);
 
         for (HasMetadata entity : list) {
-            log.info("Deleting resource " + getKind(entity) + " " + namespace + "/" + getName(entity));
-            kubernetes.resource(entity).inNamespace(namespace).cascading(true).delete();
+            deleteEntity(kubernetes, namespace, entity, log);
+        }
+    }
+
+    private static void deleteEntity(KubernetesClient kubernetes, String namespace, HasMetadata entity, Logger log) {
+        log.info("Deleting resource " + getKind(entity) + " " + namespace + "/" + getName(entity));
+        kubernetes.resource(entity).inNamespace(namespace).cascading(true).delete();
+    }
+
+    private static void deleteEntitiesInTiers(final KubernetesClient kubernetes, final String namespace, List<HasMetadata> entities,
+                                              int parallelism, long waitSeconds, final Logger log) {
+        List<List<HasMetadata>> tiers = KubernetesResourceUtil.groupByApplyTier(entities);
+        Collections.reverse(tiers);
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(waitSeconds);
+        Map<String, Throwable> failures = new LinkedHashMap<>();
+        // Resources whose deletion couldn't be confirmed before the deadline
+        List<String> pending = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            for (List<HasMetadata> tier : tiers) {
+                List<Future<?>> futures = new ArrayList<>();
+                for (final HasMetadata entity : tier) {
+                    futures.add(executor.submit(new Runnable() {
+                        @Override
+                        public void run() {
+                            deleteEntity(kubernetes, namespace, entity, log);
+                        }
+                    }));
+                }
+                List<HasMetadata> deleted = new ArrayList<>();
+                for (int i = 0; i < tier.size(); i++) {
+                    HasMetadata entity = tier.get(i);
+                    try {
+                        futures.get(i).get();
+                        deleted.add(entity);
+                    } catch (ExecutionException e) {
+                        failures.put(getKind(entity) + " " + namespace + "/" + getName(entity), e.getCause());
+                    }
+                }
+                if (waitSeconds > 0) {
+                    if (pending.isEmpty() && System.currentTimeMillis() < deadline) {
+                        pending.addAll(waitUntilDeleted(kubernetes, namespace, deleted, deadline, log));
+                    } else {
+                        // Deadline passed, the remaining tiers are only deleted
+                        for (HasMetadata entity : deleted) {
+                            pending.add(getDeletionDescription(entity));
+                        }
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KubernetesClientException("Interrupted while deleting resources");
+        } finally {
+            executor.shutdownNow();
+        }
+        if (!pending.isEmpty()) {
+            log.warn("Timeout while waiting for the deletion of %s", pending);
+        }
+        if (!failures.isEmpty()) {
+            for (Map.Entry<String, Throwable> entry : failures.entrySet()) {
+                log.error("Failed to delete %s: %s", entry.getKey(), entry.getValue().getMessage());
+            }
+            throw new KubernetesClientException("Failed to delete " + failures.size() + " resource(s): " +
+                                                Strings.join(failures.keySet(), ", "),
+                                                failures.values().iterator().next());
+        }
+    }
+
+    // Wait until the given entities and the pods selected by them are gone. Each of them is tracked by a
+    // watch, which is opened before looking up the current state so that no deletion is missed.
+    // Returns the entities not deleted before the deadline.
+    private static List<String> waitUntilDeleted(KubernetesClient kubernetes, String namespace, List<HasMetadata> entities,
+                                                 long deadline, Logger log) throws InterruptedException {
+        List<DeletionTracker> trackers = new ArrayList<>();
+        for (HasMetadata entity : entities) {
+            trackers.add(new DeletionTracker(getDeletionDescription(entity)));
+        }
+        List<String> pending = new ArrayList<>();
+        final CountDownLatch latch = new CountDownLatch(trackers.size());
+        List<Watch> watches = new ArrayList<>();
+        try {
+            for (int i = 0; i < entities.size(); i++) {
+                HasMetadata entity = entities.get(i);
+                final DeletionTracker tracker = trackers.get(i);
+                LabelSelector selector = KubernetesResourceUtil.getPodLabelSelector(entity);
+                if (selector != null) {
+                    tracker.podsPending = true;
+                }
+                watches.add(kubernetes.resource(entity).inNamespace(namespace).watch(new Watcher<HasMetadata>() {
+                    @Override
+                    public void eventReceived(Action action, HasMetadata resource) {
+                        if (action == Action.DELETED) {
+                            tracker.resourceDeleted(latch);
+                        }
+                    }
+
+                    @Override
+                    public void onClose(KubernetesClientException cause) {
+                    }
+                }));
+                if (selector != null) {
+                    FilterWatchListDeletable<Pod, PodList, Boolean, Watch, Watcher<Pod>> pods =
+                        withSelector(kubernetes.pods().inNamespace(namespace), selector, log);
+                    watches.add(pods.watch(new Watcher<Pod>() {
+                        @Override
+                        public void eventReceived(Action action, Pod pod) {
+                            if (action == Action.DELETED) {
+                                tracker.podDeleted(getName(pod), latch);
+                            }
+                        }
+
+                        @Override
+                        public void onClose(KubernetesClientException cause) {
+                        }
+                    }));
+                    List<String> podNames = new ArrayList<>();
+                    PodList podList = pods.list();
+                    if (podList != null && podList.getItems() != null) {
+                        for (Pod pod : podList.getItems()) {
+                            podNames.add(getName(pod));
+                        }
+                    }
+                    tracker.podsFound(podNames, latch);
+                }
+                if (kubernetes.resource(entity).inNamespace(namespace).get() == null) {
+                    tracker.resourceDeleted(latch);
+                }
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0 || !latch.await(remaining, TimeUnit.MILLISECONDS)) {
+                for (DeletionTracker tracker : trackers) {
+                    if (!tracker.isDone()) {
+                        pending.add(tracker.description);
+                    }
+                }
+            }
+        } finally {
+            for (Watch watch : watches) {
+                watch.close();
+            }
+        }
+        return pending;
+    }
+
+    private static String getDeletionDescription(HasMetadata entity) {
+        return getKind(entity) + " " + getName(entity);
+    }
+
+    // Tracks the deletion of a resource and of the pods it controls
+    private static class DeletionTracker {
+        private final String description;
+        private final Set<String> remainingPods = new HashSet<>();
+        private final Set<String> deletedPods = new HashSet<>();
+        private boolean resourceDeleted;
+        private boolean podsPending;
+        private boolean done;
+
+        DeletionTracker(String description) {
+            this.description = description;
+        }
+
+        synchronized void resourceDeleted(CountDownLatch latch) {
+            resourceDeleted = true;
+            checkDone(latch);
+        }
+
+        synchronized void podDeleted(String name, CountDownLatch latch) {
+            deletedPods.add(name);
+            remainingPods.remove(name);
+            checkDone(latch);
+        }
+
+        synchronized void podsFound(List<String> names, CountDownLatch latch) {
+            remainingPods.addAll(names);
+            remainingPods.removeAll(deletedPods);
+            podsPending = false;
+            checkDone(latch);
+        }
+
+        synchronized boolean isDone() {
+            return done;
+        }
+
+        private void checkDone(CountDownLatch latch) {
+            if (!done && resourceDeleted && !podsPending && remainingPods.isEmpty()) {
+                done = true;
+                latch.countDown();
+            }
         }
     }
 
@@ -164,17 +385,15 @@ public class KubernetesClientUtil {
         Thread thread = new Thread() {
             @Override
             public void run() {
-                try (BufferedReader reader = new BufferedReader(new InputStreamReader(in))) {
-                    while (true) {
-                        String line = reader.readLine();
-                        if (line == null) {
-                            return;
-                        }
-                        if (terminateLatch.getCount() <= 0L) {
-                            return;
+                try (InputStream stream = in) {
+                    new LineSplitter().split(stream, new LineSplitter.LineHandler() {
+                        @Override
+                        public void onLine(byte[] buffer, int offset, int length) {
+                            if (terminateLatch.getCount() > 0L) {
+                                log.info("[[s]]%s", new String(buffer, offset, length, StandardCharsets.UTF_8));
+                            }
                         }
-                        log.info("[[s]]%s", line);
-                    }
+                    });
                 } catch (IOException e) {
                     // Check again the latch which could be already count down to zero in between
                     // so that an IO exception occurs on read
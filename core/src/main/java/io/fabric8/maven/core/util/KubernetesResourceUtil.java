@@ -16,14 +16,20 @@
 
 package io.fabric8.maven.core.util;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.net.URL;
 import java.net.UnknownHostException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -34,17 +40,19 @@ import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import io.fabric8.kubernetes.api.KubernetesHelper;
-import io.fabric8.kubernetes.api.extensions.Templates;
 import io.fabric8.kubernetes.api.model.ConfigMap;
 import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
 import io.fabric8.kubernetes.api.model.Container;
@@ -56,8 +64,8 @@ import io.fabric8.kubernetes.api.model.EnvVarBuilder;
 import io.fabric8.kubernetes.api.model.HasMetadata;
 import io.fabric8.kubernetes.api.model.Job;
 import io.fabric8.kubernetes.api.model.JobSpec;
+import io.fabric8.kubernetes.api.model.KubernetesList;
 import io.fabric8.kubernetes.api.model.KubernetesListBuilder;
-import io.fabric8.kubernetes.api.model.KubernetesResource;
 import io.fabric8.kubernetes.api.model.LabelSelector;
 import io.fabric8.kubernetes.api.model.LabelSelectorBuilder;
 import io.fabric8.kubernetes.api.model.ObjectMeta;
@@ -87,13 +95,13 @@ import io.fabric8.openshift.api.model.BuildStatus;
 import io.fabric8.openshift.api.model.DeploymentConfig;
 import io.fabric8.openshift.api.model.DeploymentConfigSpec;
 import io.fabric8.openshift.api.model.Template;
-import io.fabric8.utils.Files;
 import io.fabric8.utils.Strings;
 
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
@@ -106,6 +114,7 @@ import org.slf4j.LoggerFactory;
 import static io.fabric8.kubernetes.api.KubernetesHelper.getKind;
 import static io.fabric8.kubernetes.api.KubernetesHelper.getName;
 import static io.fabric8.maven.core.util.Constants.RESOURCE_APP_CATALOG_ANNOTATION;
+import static io.fabric8.maven.core.util.Constants.RESOURCE_CONTENT_HASH_ANNOTATION;
 import static io.fabric8.maven.core.util.Constants.RESOURCE_SOURCE_URL_ANNOTATION;
 import static io.fabric8.utils.Lists.notNullList;
 import static io.fabric8.utils.Strings.isNullOrBlank;
@@ -134,6 +143,8 @@ public class KubernetesResourceUtil {
 
     protected static final String DATE_TIME_FORMAT = "yyyy-MM-dd'T'HH:mm:ssX";
 
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
 
     /**
      * Read all Kubernetes resource fragments from a directory and create a {@link KubernetesListBuilder} which
@@ -148,16 +159,78 @@ public class KubernetesResourceUtil {
     public static KubernetesListBuilder readResourceFragmentsFrom(ResourceVersioning apiVersions,
                                                                   String defaultName,
                                                                   File[] resourceFiles) throws IOException {
+        return readResourceFragmentsFrom(apiVersions, defaultName, resourceFiles, 1);
+    }
+
+    /**
+     * Read all Kubernetes resource fragments like {@link #readResourceFragmentsFrom(ResourceVersioning, String, File[])}
+     * but parse the fragments in parallel. The items are added to the list builder in the same order as the
+     * given files, regardless of the order in which the parsing finishes.
+     *
+     * @param apiVersions the api versions to use
+     * @param defaultName the default name to use when none is given
+     * @param resourceFiles files to add.
+     * @param parallelism maximum number of fragments to parse concurrently. A value of 1 or less parses
+     *                    the fragments sequentially in the calling thread.
+     * @return the list builder
+     * @throws IOException
+     */
+    public static KubernetesListBuilder readResourceFragmentsFrom(final ResourceVersioning apiVersions,
+                                                                  final String defaultName,
+                                                                  final File[] resourceFiles,
+                                                                  int parallelism) throws IOException {
         KubernetesListBuilder builder = new KubernetesListBuilder();
-        if (resourceFiles != null) {
+        if (resourceFiles == null) {
+            return builder;
+        }
+        if (parallelism <= 1 || resourceFiles.length <= 1) {
             for (File file : resourceFiles) {
                 HasMetadata resource = getResource(apiVersions, file, defaultName);
                 builder.addToItems(resource);
             }
+            return builder;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, resourceFiles.length));
+        try {
+            List<ForkJoinTask<HasMetadata>> tasks = new ArrayList<>();
+            for (final File file : resourceFiles) {
+                tasks.add(pool.submit(new Callable<HasMetadata>() {
+                    @Override
+                    public HasMetadata call() throws IOException {
+                        return getResource(apiVersions, file, defaultName);
+                    }
+                }));
+            }
+            // Join in submission order to keep the item order deterministic
+            for (ForkJoinTask<HasMetadata> task : tasks) {
+                builder.addToItems(joinFragmentTask(task));
+            }
+        } finally {
+            pool.shutdownNow();
         }
         return builder;
     }
 
+    private static HasMetadata joinFragmentTask(ForkJoinTask<HasMetadata> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading resource fragments");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
     /**
      * Read a Kubernetes resource fragment and add meta information extracted from the filename
      * to the resource descriptor. I.e. the following elements are added if not provided in the fragment:
@@ -193,22 +266,97 @@ public class KubernetesResourceUtil {
     }
 
     public static File writeResource(Object resource, File target, ResourceFileType resourceFileType) throws IOException {
+        return writeResource(resource, target, resourceFileType, false);
+    }
+
+    /**
+     * Write a resource to a file whose extension is added according to the given resource type
+     *
+     * @param resource resource to write
+     * @param target target file without extension
+     * @param resourceFileType format to use
+     * @param multiDocument if true and the resource is a {@link KubernetesList}, write each item as a separate
+     *                      YAML document. Ignored for JSON.
+     * @return the file written
+     */
+    public static File writeResource(Object resource, File target, ResourceFileType resourceFileType, boolean multiDocument) throws IOException {
         File outputFile = resourceFileType.addExtension(target);
-        return writeResourceFile(resource, outputFile, resourceFileType);
+        return writeResourceFile(resource, outputFile, resourceFileType, multiDocument);
     }
 
     public static File writeResourceFile(Object resource, File outputFile, ResourceFileType resourceFileType) throws IOException {
-        String serialized = serializeAsString(resource, resourceFileType);
-        Files.writeToFile(outputFile, serialized, Charset.defaultCharset());
+        return writeResourceFile(resource, outputFile, resourceFileType, false);
+    }
+
+    /**
+     * Serialize a resource directly to a file without creating an intermediate string. Lists are written item by item
+     * so that the memory needed stays independent of the size of the whole list.
+     *
+     * @param resource resource to write
+     * @param outputFile file to write to
+     * @param resourceFileType format to use
+     * @param multiDocument if true and the resource is a {@link KubernetesList}, write each item as a separate
+     *                      YAML document separated by <code>---</code>. Ignored for JSON.
+     * @return the file written
+     */
+    public static File writeResourceFile(Object resource, File outputFile, ResourceFileType resourceFileType, boolean multiDocument) throws IOException {
+        ObjectMapper mapper = createSerializingObjectMapper(resourceFileType);
+        try (FileChannel channel = FileChannel.open(outputFile.toPath(),
+                                                    StandardOpenOption.CREATE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING,
+                                                    StandardOpenOption.WRITE);
+             Writer writer = new BufferedWriter(Channels.newWriter(channel, Charset.defaultCharset().name()), WRITE_BUFFER_SIZE)) {
+            if (multiDocument && resourceFileType == ResourceFileType.yaml && resource instanceof KubernetesList) {
+                // Each serialized item starts with its own document marker, only a single item is held in memory
+                for (HasMetadata item : notNullList(((KubernetesList) resource).getItems())) {
+                    writer.write(mapper.writeValueAsString(item));
+                }
+            } else {
+                mapper.writeValue(writer, resource);
+            }
+        }
         return outputFile;
     }
 
     private static String serializeAsString(Object resource, ResourceFileType resourceFileType) throws JsonProcessingException {
-        ObjectMapper mapper = resourceFileType.getObjectMapper()
-                                              .enable(SerializationFeature.INDENT_OUTPUT)
-                                              .disable(SerializationFeature.WRITE_EMPTY_JSON_ARRAYS)
-                                              .disable(SerializationFeature.WRITE_NULL_MAP_VALUES);
-        return mapper.writeValueAsString(resource);
+        return createSerializingObjectMapper(resourceFileType).writeValueAsString(resource);
+    }
+
+    private static ObjectMapper createSerializingObjectMapper(ResourceFileType resourceFileType) {
+        return resourceFileType.getObjectMapper()
+                               .enable(SerializationFeature.INDENT_OUTPUT)
+                               .disable(SerializationFeature.WRITE_EMPTY_JSON_ARRAYS)
+                               .disable(SerializationFeature.WRITE_NULL_MAP_VALUES);
+    }
+
+    /**
+     * Calculate a hash over the canonical JSON form of a resource. Properties and map entries are sorted, and
+     * the status, the server managed metadata and the content hash annotation itself are ignored. This way the
+     * hash of a resource to apply can be compared with the hash stored in the annotation of the live resource.
+     *
+     * @param resource resource to hash
+     * @return hex encoded SHA-256 hash
+     * @throws JsonProcessingException if the resource can't be serialized
+     */
+    public static String calculateContentHash(HasMetadata resource) throws JsonProcessingException {
+        ObjectMapper mapper = new ObjectMapper()
+            .enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            .disable(SerializationFeature.WRITE_NULL_MAP_VALUES);
+        Map<String, Object> tree = mapper.convertValue(resource, new TypeReference<Map<String, Object>>() {});
+        tree.remove("status");
+        Object metadata = tree.get("metadata");
+        if (metadata instanceof Map) {
+            Map<?, ?> metadataMap = (Map<?, ?>) metadata;
+            for (String key : new String[] { "resourceVersion", "uid", "selfLink", "creationTimestamp", "generation" }) {
+                metadataMap.remove(key);
+            }
+            Object annotations = metadataMap.get("annotations");
+            if (annotations instanceof Map) {
+                ((Map<?, ?>) annotations).remove(RESOURCE_CONTENT_HASH_ANNOTATION);
+            }
+        }
+        return new ResourceCache.Fingerprint().add("resource", mapper.writeValueAsString(tree)).getHash();
     }
 
     public static File[] listResourceFragments(File resourceDir) {
@@ -420,6 +568,54 @@ public class KubernetesResourceUtil {
         return false;
     }
 
+    // Kinds in the order in which they must exist before the resources of later tiers can be applied.
+    // All other kinds (controllers, routes, ...) form the last tier.
+    private static final String[][] APPLY_TIERS = {
+        { "Namespace", "Project", "ProjectRequest" },
+        { "CustomResourceDefinition", "ThirdPartyResource" },
+        { "ServiceAccount", "Role", "ClusterRole", "RoleBinding", "ClusterRoleBinding", "SecurityContextConstraints" },
+        { "Secret", "ConfigMap" },
+        { "PersistentVolume", "PersistentVolumeClaim" },
+        { "Service" }
+    };
+
+    /**
+     * Group resources into tiers which can be applied one after another: namespaces, custom resource definitions,
+     * service accounts, secrets and config maps, volume claims, services and finally everything else. Resources within
+     * a tier don't depend on each other and can be applied concurrently. Empty tiers are omitted and the order of the
+     * given resources is kept within a tier.
+     *
+     * @param entities resources to group
+     * @return list of non-empty tiers
+     */
+    public static List<List<HasMetadata>> groupByApplyTier(Collection<HasMetadata> entities) {
+        List<List<HasMetadata>> tiers = new ArrayList<>();
+        for (int i = 0; i <= APPLY_TIERS.length; i++) {
+            tiers.add(new ArrayList<HasMetadata>());
+        }
+        for (HasMetadata entity : entities) {
+            if (entity != null) {
+                tiers.get(getApplyTier(entity.getKind())).add(entity);
+            }
+        }
+        List<List<HasMetadata>> ret = new ArrayList<>();
+        for (List<HasMetadata> tier : tiers) {
+            if (!tier.isEmpty()) {
+                ret.add(tier);
+            }
+        }
+        return ret;
+    }
+
+    private static int getApplyTier(String kind) {
+        for (int i = 0; i < APPLY_TIERS.length; i++) {
+            if (Arrays.asList(APPLY_TIERS[i]).contains(kind)) {
+                return i;
+            }
+        }
+        return APPLY_TIERS.length;
+    }
+
     public static boolean addPort(List<ContainerPort> ports, String portNumberText, String portName, Logger log) {
         if (Strings.isNullOrBlank(portNumberText)) {
             return false;
@@ -828,29 +1024,40 @@ public class KubernetesResourceUtil {
         return "true".equals(catalogAnnotation);
     }
 
+    /**
+     * Load all resources of a manifest, sorted in the order in which they should be applied
+     *
+     * @param manifest manifest to load. It can hold a list, a template, a single resource or multiple YAML documents
+     * @return the sorted resources
+     * @throws IOException if the manifest can't be read
+     * @throws IllegalStateException if the manifest is empty
+     */
     public static Set<HasMetadata> loadResources(File manifest) throws IOException {
-        Object dto = KubernetesHelper.loadYaml(manifest, KubernetesResource.class);
-        if (dto == null) {
-            throw new IllegalStateException("Cannot load kubernetes YAML: " + manifest);
-        }
-
-        if (dto instanceof Template) {
-            Template template = (Template) dto;
-            boolean failOnMissingParameterValue = false;
-            dto = Templates.processTemplatesLocally(template, failOnMissingParameterValue);
-        }
-
-        Set<KubernetesResource<?>> resources = new LinkedHashSet<>();
-
         Set<HasMetadata> entities = new TreeSet<>(new HasMetadataComparator());
-        for (KubernetesResource<?> resource : resources) {
-            entities.addAll(KubernetesHelper.toItemList(resource));
+        try (ManifestReader reader = streamResources(manifest)) {
+            HasMetadata entity;
+            while ((entity = reader.read()) != null) {
+                entities.add(entity);
+            }
+            if (reader.getDocumentCount() == 0) {
+                throw new IllegalStateException("Cannot load kubernetes YAML: " + manifest);
+            }
         }
-
-        entities.addAll(KubernetesHelper.toItemList(dto));
         return entities;
     }
 
+    /**
+     * Open a streaming reader for a manifest, which returns the resources lazily in the order in which they
+     * appear in the file. The reader must be closed after usage.
+     *
+     * @param manifest manifest to read
+     * @return the reader
+     * @throws IOException if the manifest can't be opened
+     */
+    public static ManifestReader streamResources(File manifest) throws IOException {
+        return new ManifestReader(manifest);
+    }
+
     public static LabelSelector getPodLabelSelector(Set<HasMetadata> entities) {
         LabelSelector chosenSelector = null;
         for (HasMetadata entity : entities) {
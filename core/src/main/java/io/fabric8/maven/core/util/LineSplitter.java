@@ -0,0 +1,117 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Splits a byte stream into lines without creating a String per line. The lines are handed out as ranges
+ * of an internal buffer which is reused for the whole stream, so that handlers can decide whether a line is
+ * worth to be converted at all. Lines longer than the maximum line length are split.
+ *
+ * A splitter is not thread safe, but can be reused for several streams one after the other.
+ *
+ * @since 17/10/26
+ */
+public class LineSplitter {
+
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+    private static final int DEFAULT_MAX_LINE_LENGTH = 65536;
+
+    private final int maxLineLength;
+    private byte[] buffer;
+
+    public LineSplitter() {
+        this(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_LINE_LENGTH);
+    }
+
+    /**
+     * @param bufferSize initial size of the buffer
+     * @param maxLineLength size up to which the buffer grows for long lines
+     */
+    public LineSplitter(int bufferSize, int maxLineLength) {
+        this.maxLineLength = Math.max(bufferSize, maxLineLength);
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Read the stream until its end and call the handler for every line. Line terminators
+     * (<code>\n</code> or <code>\r\n</code>) are not part of the line.
+     *
+     * @param in stream to read
+     * @param handler handler to call for each line, must not keep a reference to the buffer
+     * @throws IOException if reading fails
+     */
+    public void split(InputStream in, LineHandler handler) throws IOException {
+        // Unprocessed bytes are buffer[start, end)
+        int start = 0;
+        int end = 0;
+        while (true) {
+            if (end == buffer.length) {
+                if (start > 0) {
+                    System.arraycopy(buffer, start, buffer, 0, end - start);
+                    end -= start;
+                    start = 0;
+                } else if (buffer.length < maxLineLength) {
+                    buffer = Arrays.copyOf(buffer, Math.min(buffer.length * 2, maxLineLength));
+                } else {
+                    emit(handler, 0, end);
+                    end = 0;
+                }
+            }
+            int read = in.read(buffer, end, buffer.length - end);
+            if (read < 0) {
+                if (end > start) {
+                    emit(handler, start, end);
+                }
+                return;
+            }
+            int scanFrom = end;
+            end += read;
+            for (int i = scanFrom; i < end; i++) {
+                if (buffer[i] == '\n') {
+                    emit(handler, start, i);
+                    start = i + 1;
+                }
+            }
+            if (start == end) {
+                start = 0;
+                end = 0;
+            }
+        }
+    }
+
+    private void emit(LineHandler handler, int from, int to) {
+        if (to > from && buffer[to - 1] == '\r') {
+            to--;
+        }
+        handler.onLine(buffer, from, to - from);
+    }
+
+    /**
+     * Receives the lines of a stream
+     */
+    public interface LineHandler {
+        /**
+         * @param buffer buffer holding the line, only valid during this call
+         * @param offset start of the line within the buffer
+         * @param length length of the line in bytes
+         */
+        void onLine(byte[] buffer, int offset, int length);
+    }
+}
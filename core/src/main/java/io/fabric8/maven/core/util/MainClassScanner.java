@@ -0,0 +1,283 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.util;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Scanner for classes with a <code>public static void main(String[])</code> method. Only the constant pool and
+ * the method table of a class file are read, the class itself is never loaded. Directories are scanned in parallel
+ * and the result for each class file is cached as long as the file doesn't change.
+ *
+ * @since 17/10/26
+ */
+class MainClassScanner {
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_STATIC = 0x0008;
+
+    private static final String MAIN_NAME = "main";
+    private static final String MAIN_DESCRIPTOR = "([Ljava/lang/String;)V";
+
+    // Scan result per class file, together with the modification time and size of the file when it was scanned.
+    // Bounded, least recently used results are dropped first.
+    private static final int RESULT_CACHE_SIZE = 10000;
+    private static final Map<String, long[]> RESULT_CACHE = Collections.synchronizedMap(
+        new LinkedHashMap<String, long[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, long[]> eldest) {
+                return size() > RESULT_CACHE_SIZE;
+            }
+        });
+
+    private static final FileFilter DIR_FILTER = new FileFilter() {
+        @Override
+        public boolean accept(File pathname) {
+            return pathname.isDirectory() && !pathname.getName().startsWith(".");
+        }
+    };
+
+    private static final FileFilter CLASS_FILE_FILTER = new FileFilter() {
+        @Override
+        public boolean accept(File file) {
+            return file.isFile() && file.getName().endsWith(".class");
+        }
+    };
+
+    /**
+     * Find all main classes below a directory
+     *
+     * @param rootDir directory to scan
+     * @return names of all main classes, relative to the given directory
+     */
+    static List<String> findMainClasses(File rootDir) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            return join(pool.submit(new DirectoryScan(rootDir, "")));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Check whether a class file contains a <code>public static void main(String[])</code> method. The result is cached
+     * per file until it is modified.
+     *
+     * @param classFile class file to check
+     * @return true if a main method is declared
+     */
+    static boolean hasMainMethod(File classFile) throws IOException {
+        String key = classFile.getAbsolutePath();
+        long lastModified = classFile.lastModified();
+        long length = classFile.length();
+        long[] cached = RESULT_CACHE.get(key);
+        if (cached != null && cached[0] == lastModified && cached[1] == length) {
+            return cached[2] != 0;
+        }
+        boolean ret;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(classFile)))) {
+            ret = hasMainMethod(in);
+        }
+        RESULT_CACHE.put(key, new long[] { lastModified, length, ret ? 1 : 0 });
+        return ret;
+    }
+
+    // ==============================================================================================
+
+    // See the JVM specification, chapter 4 "The class File Format"
+    private static boolean hasMainMethod(DataInputStream in) throws IOException {
+        if (in.readInt() != 0xCAFEBABE) {
+            return false;
+        }
+        // minor and major version
+        in.readUnsignedShort();
+        in.readUnsignedShort();
+
+        int mainNameIndex = -1;
+        int mainDescriptorIndex = -1;
+        int poolCount = in.readUnsignedShort();
+        for (int i = 1; i < poolCount; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1: // Utf8
+                    String value = in.readUTF();
+                    if (MAIN_NAME.equals(value)) {
+                        mainNameIndex = i;
+                    } else if (MAIN_DESCRIPTOR.equals(value)) {
+                        mainDescriptorIndex = i;
+                    }
+                    break;
+                case 7:  // Class
+                case 8:  // String
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    skip(in, 2);
+                    break;
+                case 15: // MethodHandle
+                    skip(in, 3);
+                    break;
+                case 3:  // Integer
+                case 4:  // Float
+                case 9:  // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    skip(in, 4);
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    skip(in, 8);
+                    // Takes two entries in the constant pool
+                    i++;
+                    break;
+                default:
+                    throw new IOException("Invalid constant pool tag " + tag);
+            }
+        }
+        if (mainNameIndex < 0 || mainDescriptorIndex < 0) {
+            // No method with this name and signature can exist
+            return false;
+        }
+
+        // access flags, this class, super class
+        skip(in, 6);
+        int interfaceCount = in.readUnsignedShort();
+        skip(in, 2 * interfaceCount);
+
+        // Fields
+        int fieldCount = in.readUnsignedShort();
+        for (int i = 0; i < fieldCount; i++) {
+            skip(in, 6);
+            skipAttributes(in);
+        }
+
+        // Methods
+        int methodCount = in.readUnsignedShort();
+        for (int i = 0; i < methodCount; i++) {
+            int accessFlags = in.readUnsignedShort();
+            int nameIndex = in.readUnsignedShort();
+            int descriptorIndex = in.readUnsignedShort();
+            if (nameIndex == mainNameIndex && descriptorIndex == mainDescriptorIndex) {
+                return (accessFlags & ACC_PUBLIC) != 0 && (accessFlags & ACC_STATIC) != 0;
+            }
+            skipAttributes(in);
+        }
+        return false;
+    }
+
+    private static void skipAttributes(DataInputStream in) throws IOException {
+        int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            skip(in, 2);
+            skip(in, in.readInt() & 0xFFFFFFFFL);
+        }
+    }
+
+    private static void skip(DataInputStream in, long bytes) throws IOException {
+        long remaining = bytes;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                throw new IOException("Unexpected end of class file");
+            }
+            remaining -= skipped;
+        }
+    }
+
+    private static List<String> join(ForkJoinTask<List<String>> task) throws IOException {
+        try {
+            return task.join();
+        } catch (ScanException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Scans a directory, with a sub task for each sub directory
+    private static class DirectoryScan extends RecursiveTask<List<String>> {
+
+        private final File dir;
+        private final String packagePrefix;
+
+        DirectoryScan(File dir, String packagePrefix) {
+            this.dir = dir;
+            this.packagePrefix = packagePrefix;
+        }
+
+        @Override
+        protected List<String> compute() {
+            List<DirectoryScan> subTasks = new ArrayList<>();
+            File[] subDirs = dir.listFiles(DIR_FILTER);
+            if (subDirs != null) {
+                for (File subDir : subDirs) {
+                    DirectoryScan task = new DirectoryScan(subDir, packagePrefix + subDir.getName() + ".");
+                    task.fork();
+                    subTasks.add(task);
+                }
+            }
+
+            List<String> classes = new ArrayList<>();
+            File[] classFiles = dir.listFiles(CLASS_FILE_FILTER);
+            if (classFiles != null) {
+                for (File classFile : classFiles) {
+                    try {
+                        if (hasMainMethod(classFile)) {
+                            String name = classFile.getName();
+                            classes.add(packagePrefix + name.substring(0, name.length() - ".class".length()));
+                        }
+                    } catch (IOException e) {
+                        throw new ScanException(classFile, e);
+                    }
+                }
+            }
+
+            // Sub directories first, in the order they have been listed
+            List<String> ret = new ArrayList<>();
+            for (DirectoryScan task : subTasks) {
+                ret.addAll(task.join());
+            }
+            ret.addAll(classes);
+            return ret;
+        }
+    }
+
+    // Wraps IO errors for passing them through the fork join framework
+    private static class ScanException extends RuntimeException {
+        ScanException(File file, IOException cause) {
+            super("Cannot scan " + file + ": " + cause.getMessage(), cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+}
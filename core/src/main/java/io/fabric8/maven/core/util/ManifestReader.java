@@ -0,0 +1,195 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import io.fabric8.kubernetes.api.KubernetesHelper;
+import io.fabric8.kubernetes.api.extensions.Templates;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.KubernetesResource;
+import io.fabric8.openshift.api.model.Template;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+
+/**
+ * Streaming reader for Kubernetes manifests. Resources are read one by one from a single list,
+ * a single resource or a multi-document YAML file, so that only the resource currently read
+ * is held in memory. Items of a list are returned in the order of the file.
+ *
+ * Templates are processed locally and their objects are returned as items. As a template can only
+ * be processed as a whole, its objects are not streamed.
+ *
+ * @since 17/10/26
+ */
+public class ManifestReader implements Iterator<HasMetadata>, Closeable {
+
+    private final File manifest;
+    private final ObjectMapper mapper;
+    private final JsonParser parser;
+
+    // Resources read but not yet returned
+    private final Deque<HasMetadata> pending = new ArrayDeque<>();
+
+    // Parser state
+    private boolean inDocument;
+    private boolean inItems;
+    private boolean documentHasItems;
+    private ObjectNode documentFields;
+    private boolean eof;
+
+    // Number of (non empty) documents found so far
+    private int documentCount;
+
+    public ManifestReader(File manifest) throws IOException {
+        this.manifest = manifest;
+        JsonFactory factory = manifest.getName().toLowerCase().endsWith(".json") ? new JsonFactory() : new YAMLFactory();
+        this.mapper = new ObjectMapper(factory);
+        this.parser = factory.createParser(manifest);
+    }
+
+    /**
+     * Read the next resource
+     *
+     * @return the next resource or <code>null</code> if the end of the manifest has been reached
+     * @throws IOException if the manifest can't be read or contains an invalid resource
+     */
+    public HasMetadata read() throws IOException {
+        while (pending.isEmpty() && !eof) {
+            advance();
+        }
+        return pending.poll();
+    }
+
+    /**
+     * Get the number of documents found so far. A value of 0 after the whole manifest has been read means that the
+     * manifest doesn't contain anything.
+     *
+     * @return number of documents read
+     */
+    public int getDocumentCount() {
+        return documentCount;
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            while (pending.isEmpty() && !eof) {
+                advance();
+            }
+            return !pending.isEmpty();
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read manifest " + manifest + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public HasMetadata next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return pending.poll();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("remove");
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+
+    // ==============================================================================================
+
+    // Move the parser forward by a single step
+    private void advance() throws IOException {
+        if (inItems) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.END_ARRAY) {
+                inItems = false;
+            } else if (token == JsonToken.START_OBJECT) {
+                pending.add(mapper.readValue(parser, HasMetadata.class));
+            } else if (token == null) {
+                throw new IOException("Unexpected end of items list");
+            }
+        } else if (inDocument) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.END_OBJECT) {
+                inDocument = false;
+                finishDocument();
+            } else if (token == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                token = parser.nextToken();
+                if ("items".equals(field) && token == JsonToken.START_ARRAY) {
+                    inItems = true;
+                    documentHasItems = true;
+                } else {
+                    documentFields.set(field, mapper.readValue(parser, JsonNode.class));
+                }
+            } else {
+                throw new IOException("Unexpected token " + token);
+            }
+        } else {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                // The YAML parser signals the end of each document with null, only a second null marks the end of the stream
+                token = parser.nextToken();
+            }
+            if (token == null) {
+                eof = true;
+            } else if (token == JsonToken.START_OBJECT) {
+                inDocument = true;
+                documentHasItems = false;
+                documentFields = mapper.createObjectNode();
+            }
+            // Everything else like empty documents is ignored
+        }
+    }
+
+    // Called when a top level object has been completely read. Any resource which is not a list is
+    // converted from the collected fields
+    private void finishDocument() throws IOException {
+        ObjectNode fields = documentFields;
+        documentFields = null;
+        if (documentHasItems) {
+            documentCount++;
+            return;
+        }
+        if (fields.size() == 0) {
+            return;
+        }
+        documentCount++;
+        Object dto = mapper.treeToValue(fields, KubernetesResource.class);
+        if (dto instanceof Template) {
+            dto = Templates.processTemplatesLocally((Template) dto, false);
+        }
+        pending.addAll(KubernetesHelper.toItemList(dto));
+    }
+}
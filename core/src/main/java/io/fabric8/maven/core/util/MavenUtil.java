@@ -180,31 +180,25 @@ public class MavenUtil {
     }
 
     /**
-     * Returns true if any of the given class names could be found on the given class loader
+     * Returns true if any of the given class names could be found on the compile classpath of the project
      */
     public static boolean hasClass(MavenProject project, String ... classNames) {
-        URLClassLoader compileClassLoader = getCompileClassLoader(project);
+        ClasspathIndex index = ClasspathIndex.forProject(project);
         for (String className : classNames) {
-            try {
-                compileClassLoader.loadClass(className);
+            if (index.hasClass(className)) {
                 return true;
-            } catch (Throwable e) {
-                // ignore
             }
         }
         return false;
     }
 
     /**
-     * Returns true if all the given class names could be found on the given class loader
+     * Returns true if all the given class names could be found on the compile classpath of the project
      */
     public static boolean hasAllClasses(MavenProject project, String ... classNames) {
-        URLClassLoader compileClassLoader = getCompileClassLoader(project);
+        ClasspathIndex index = ClasspathIndex.forProject(project);
         for (String className : classNames) {
-            try {
-                compileClassLoader.loadClass(className);
-            } catch (Throwable e) {
-                // ignore message
+            if (!index.hasClass(className)) {
                 return false;
             }
         }
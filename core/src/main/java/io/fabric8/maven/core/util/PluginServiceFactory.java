@@ -16,14 +16,18 @@
 
 package io.fabric8.maven.core.util;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.LineNumberReader;
 import java.lang.reflect.Constructor;
 import java.net.URL;
+import java.net.URLClassLoader;
 import java.util.*;
 import java.util.regex.Pattern;
 
+import io.fabric8.maven.core.config.Named;
+
 /**
  * A simple factory for creating services with no-arg constructors from a textual
  * descriptor. This descriptor, which must be a resource loadable by this class'
@@ -37,12 +41,29 @@ import java.util.regex.Pattern;
  *
  * If a line starts with <code>!</code> it is removed if it has been added previously.
  * The optional second numeric value is the order in which the services are returned.
+ * A service can be given a name by prefixing the class name with the name and <code>=</code>
+ * like in <code>fmp-git=io.fabric8.maven.enricher.standard.GitEnricher</code>. Named services can be
+ * selected via {@link #createServiceHandles(String...)} without instantiating them.
+ *
+ * The parsed descriptors are kept in an index keyed by the descriptor paths and the classpath of all
+ * class loaders involved, so that the classpath is scanned only once for the whole build.
  *
  * @author roland
  * @since 05.11.10
  */
 public final class PluginServiceFactory<C> {
 
+    // Index of parsed service descriptors, shared by all factories. Only the parsed entries are
+    // stored, so no class loader is referenced.
+    private static final int DESCRIPTOR_INDEX_SIZE = 64;
+    private static final Map<String, List<ServiceEntry>> DESCRIPTOR_INDEX = Collections.synchronizedMap(
+        new LinkedHashMap<String, List<ServiceEntry>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<ServiceEntry>> eldest) {
+                return size() > DESCRIPTOR_INDEX_SIZE;
+            }
+        });
+
     private List<ClassLoader> additionalClassLoaders = new ArrayList<>();
 
     // Parameters for service constructors
@@ -69,53 +90,110 @@ public final class PluginServiceFactory<C> {
      * @return a ordered list of created services or an empty list.
      */
     public <T> List<T> createServiceObjects(String... descriptorPaths) {
+        List<T> ret = new ArrayList<T>();
+        for (ServiceEntry entry : getServiceEntries(descriptorPaths)) {
+            ret.add(this.<T>createService(entry));
+        }
+        return ret;
+    }
+
+    /**
+     * Create a list of handles for the services in the order given by the descriptors, like
+     * {@link #createServiceObjects(String...)} does. A service is instantiated only when it is accessed
+     * via {@link ServiceHandle#get()}. If a service has no name declared in the descriptor, it is created
+     * when its name is looked up.
+     *
+     * @param descriptorPaths a list of resource paths which are handle in the given order.
+     * @param <T> type of the service objects to create
+     * @return a ordered list of service handles or an empty list.
+     */
+    public <T extends Named> List<ServiceHandle<T>> createServiceHandles(String... descriptorPaths) {
+        List<ServiceHandle<T>> ret = new ArrayList<>();
+        for (ServiceEntry entry : getServiceEntries(descriptorPaths)) {
+            ret.add(new ServiceHandle<T>(this, entry));
+        }
+        return ret;
+    }
+
+    /**
+     * Get the services of the given handles
+     *
+     * @param handles handles to resolve
+     * @param <T> type of the services
+     * @return list of services, instantiated if required
+     */
+    public static <T extends Named> List<T> getServices(List<ServiceHandle<T>> handles) {
+        List<T> ret = new ArrayList<>();
+        for (ServiceHandle<T> handle : handles) {
+            ret.add(handle.get());
+        }
+        return ret;
+    }
+
+    /**
+     * Clear the index of parsed service descriptors
+     */
+    public static void clearDescriptorIndex() {
+        DESCRIPTOR_INDEX.clear();
+    }
+
+    // Get the ordered service entries for the given descriptors, either from the index or by reading them
+    private List<ServiceEntry> getServiceEntries(String... descriptorPaths) {
+        String key = getDescriptorIndexKey(descriptorPaths);
+        if (key != null) {
+            List<ServiceEntry> cached = DESCRIPTOR_INDEX.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        List<ServiceEntry> entries = readServiceEntries(descriptorPaths);
+        if (key != null) {
+            DESCRIPTOR_INDEX.put(key, entries);
+        }
+        return entries;
+    }
+
+    private List<ServiceEntry> readServiceEntries(String... descriptorPaths) {
         try {
             ServiceEntry.initDefaultOrder();
-            TreeMap<ServiceEntry,T> serviceMap = new TreeMap<ServiceEntry,T>();
+            TreeMap<ServiceEntry, ServiceEntry> serviceMap = new TreeMap<>();
             for (String descriptor : descriptorPaths) {
                 readServiceDefinitions(serviceMap, descriptor);
             }
-            ArrayList<T> ret = new ArrayList<T>();
-            for (T service : serviceMap.values()) {
-                ret.add(service);
-            }
-            return ret;
+            return Collections.unmodifiableList(new ArrayList<>(serviceMap.values()));
         } finally {
             ServiceEntry.removeDefaultOrder();
         }
     }
 
-    private <T> void readServiceDefinitions(Map<ServiceEntry, T> extractorMap, String defPath) {
+    private void readServiceDefinitions(Map<ServiceEntry, ServiceEntry> serviceMap, String defPath) {
         try {
             for (String url : ClassUtil.getResources(defPath, additionalClassLoaders)) {
-                readServiceDefinitionFromUrl(extractorMap, url);
+                readServiceDefinitionFromUrl(serviceMap, url);
             }
         } catch (IOException e) {
             throw new IllegalStateException("Cannot load service from " + defPath + ": " + e, e);
         }
     }
 
-    private <T> void readServiceDefinitionFromUrl(Map<ServiceEntry, T> extractorMap, String url) {
-        String line = null;
+    private void readServiceDefinitionFromUrl(Map<ServiceEntry, ServiceEntry> serviceMap, String url) {
         try (LineNumberReader reader = new LineNumberReader(new InputStreamReader(new URL(url).openStream(), "UTF8"))) {
-            line = reader.readLine();
+            String line = reader.readLine();
             while (line != null) {
-                createOrRemoveService(extractorMap, line);
+                addOrRemoveEntry(serviceMap, line, url);
                 line = reader.readLine();
             }
-        } catch (ReflectiveOperationException|IOException e) {
-            throw new IllegalStateException("Cannot load service " + line + " defined in " +
-                                            url + " : " + e + ". Aborting", e);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot load services defined in " + url + " : " + e + ". Aborting", e);
         }
     }
 
     // Matches comment lines and empty lines. these are skipped
     private static Pattern COMMENT_LINE_PATTERN = Pattern.compile("^(\\s*#.*|\\s*)$");
 
-    private synchronized  <T> void createOrRemoveService(Map<ServiceEntry, T> serviceMap, String line)
-        throws ReflectiveOperationException {
+    private void addOrRemoveEntry(Map<ServiceEntry, ServiceEntry> serviceMap, String line, String url) {
         if (line.length() > 0 && !COMMENT_LINE_PATTERN.matcher(line).matches()) {
-            ServiceEntry entry = new ServiceEntry(line);
+            ServiceEntry entry = new ServiceEntry(line, url);
             if (entry.isRemove()) {
                 // Removing is a bit complex since we need to find out
                 // the proper key since the order is part of equals/hash
@@ -130,19 +208,78 @@ public final class PluginServiceFactory<C> {
                     serviceMap.remove(key);
                 }
             } else {
-                Class<T> clazz = ClassUtil.classForName(entry.getClassName(), additionalClassLoaders);
-                if (clazz == null) {
-                    throw new ClassNotFoundException("Class " + entry.getClassName() + " could not be found");
+                serviceMap.put(entry, entry);
+            }
+        }
+    }
+
+    private <T> T createService(ServiceEntry entry) {
+        try {
+            Class<T> clazz = ClassUtil.classForName(entry.getClassName(), additionalClassLoaders);
+            if (clazz == null) {
+                throw new ClassNotFoundException("Class " + entry.getClassName() + " could not be found");
+            }
+            Constructor<T> constructor = clazz.getConstructor(context.getClass());
+            if (constructor == null) {
+                throw new IllegalArgumentException(
+                    "Internal Error: " + clazz + " does not have constructor (" + context.getClass() + ")");
+            }
+            return constructor.newInstance(context);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot load service " + entry.getClassName() + " defined in " +
+                                            entry.getDefinedIn() + " : " + e + ". Aborting", e);
+        }
+    }
+
+    // Key for the descriptor index which identifies the given descriptors and the content of all class loaders
+    // involved. If a class loader's content can't be identified reliably, null is returned and nothing is cached.
+    private String getDescriptorIndexKey(String... descriptorPaths) {
+        StringBuilder key = new StringBuilder(Arrays.toString(descriptorPaths));
+        for (ClassLoader loader : ClassUtil.mergeClassLoaders(additionalClassLoaders)) {
+            key.append('|');
+            if (!appendClassLoaderKey(key, loader)) {
+                return null;
+            }
+        }
+        return key.toString();
+    }
+
+    private boolean appendClassLoaderKey(StringBuilder key, ClassLoader loader) {
+        Set<ClassLoader> constantLoaders = getConstantClassLoaders();
+        while (loader != null) {
+            if (constantLoaders.contains(loader)) {
+                // The classpath of the JVM doesn't change
+                key.append("<system>");
+                return true;
+            }
+            if (!(loader instanceof URLClassLoader)) {
+                return false;
+            }
+            for (URL url : ((URLClassLoader) loader).getURLs()) {
+                if (!"file".equals(url.getProtocol())) {
+                    return false;
                 }
-                Constructor<T> constructor = clazz.getConstructor(context.getClass());
-                if (constructor == null) {
-                    throw new IllegalArgumentException(
-                        "Internal Error: " + clazz + " does not have constructor (" + context.getClass() + ")");
+                File file = new File(url.getPath());
+                if (file.isDirectory()) {
+                    // Content of directories can change unnoticed, e.g. when compiled within the same build
+                    return false;
                 }
-                T service = constructor.newInstance(context);
-                serviceMap.put(entry, service);
+                key.append(url).append('@').append(file.lastModified()).append(',');
             }
+            key.append('/');
+            loader = loader.getParent();
         }
+        return true;
+    }
+
+    private static Set<ClassLoader> getConstantClassLoaders() {
+        Set<ClassLoader> ret = Collections.newSetFromMap(new IdentityHashMap<ClassLoader, Boolean>());
+        ClassLoader loader = ClassLoader.getSystemClassLoader();
+        while (loader != null) {
+            ret.add(loader);
+            loader = loader.getParent();
+        }
+        return ret;
     }
 
     public void addAdditionalClassLoader(ClassLoader classLoader) {
@@ -152,10 +289,67 @@ public final class PluginServiceFactory<C> {
 
     // =============================================================================
 
+    /**
+     * Handle to a service which is created on first access
+     *
+     * @param <T> type of the service
+     */
+    public static final class ServiceHandle<T extends Named> implements Named {
+
+        private final PluginServiceFactory<?> factory;
+        private final ServiceEntry entry;
+        private T service;
+
+        private ServiceHandle(PluginServiceFactory<?> factory, ServiceEntry entry) {
+            this.factory = factory;
+            this.entry = entry;
+        }
+
+        /**
+         * Get the name of the service. If no name is declared in the service descriptor, the service
+         * is created for looking up the name.
+         *
+         * @return name of the service
+         */
+        @Override
+        public String getName() {
+            return entry.getName() != null ? entry.getName() : get().getName();
+        }
+
+        /**
+         * Get the service, creating it on first access
+         *
+         * @return the service
+         */
+        public synchronized T get() {
+            if (service == null) {
+                T created = factory.createService(entry);
+                if (entry.getName() != null && !entry.getName().equals(created.getName())) {
+                    throw new IllegalStateException(
+                        "Service " + entry.getClassName() + " is declared with name '" + entry.getName() + "' in " +
+                        entry.getDefinedIn() + " but is called '" + created.getName() + "'");
+                }
+                service = created;
+            }
+            return service;
+        }
+
+        /**
+         * Whether the service has been created already
+         *
+         * @return true if created
+         */
+        public synchronized boolean isCreated() {
+            return service != null;
+        }
+    }
+
      static class ServiceEntry implements Comparable<ServiceEntry> {
         private String className;
+        private String name;
         private boolean remove;
         private Integer order;
+        private String definedIn;
 
         private static ThreadLocal<Integer> defaultOrderHolder = new ThreadLocal<Integer>() {
 
@@ -173,12 +367,14 @@ public final class PluginServiceFactory<C> {
         /**
          * Parse an entry in the service definition. This should be the full qualified classname
          * of a service, optional prefixed with "<code>!</code>" in which case the service is removed
-         * from the defaul list. An order value can be appened after the classname with a comma for give a
+         * from the defaul list. The classname can be prefixed by the name of the service and a "<code>=</code>". An order value can be appened after the classname with a comma for give a
          * indication for the ordering of services. If not given, 100 is taken for the first entry, counting up.
          *
          * @param line line to parse
+         * @param definedIn URL of the descriptor containing the line
          */
-        public ServiceEntry(String line) {
+        public ServiceEntry(String line, String definedIn) {
+            this.definedIn = definedIn;
             String[] parts = line.split(",");
             if (parts[0].startsWith("!")) {
                 remove = true;
@@ -187,6 +383,11 @@ public final class PluginServiceFactory<C> {
                 remove = false;
                 className = parts[0];
             }
+            int nameIdx = className.indexOf('=');
+            if (nameIdx >= 0) {
+                name = className.substring(0, nameIdx).trim();
+                className = className.substring(nameIdx + 1).trim();
+            }
             if (parts.length > 1) {
                 try {
                     order = Integer.parseInt(parts[1]);
@@ -216,6 +417,14 @@ public final class PluginServiceFactory<C> {
             return className;
         }
 
+        private String getName() {
+            return name;
+        }
+
+        private String getDefinedIn() {
+            return definedIn;
+        }
+
         private boolean isRemove() {
             return remove;
         }
@@ -0,0 +1,277 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import io.fabric8.maven.docker.util.Logger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Records wall time, number of calls and allocated bytes for processors like enrichers and generators.
+ * Each call is measured between {@link #start(String, String, String)} and {@link Measurement#stop()}
+ * and accumulated per processor type, name and phase.
+ *
+ * Allocated bytes are only available on JVMs supporting per thread allocation counters and
+ * are reported as -1 otherwise.
+ *
+ * @since 17/10/26
+ */
+public class ProcessorTimings {
+
+    public static final String REPORT_FILE = "processor-timings.json";
+
+    private static final Measurement NO_MEASUREMENT = new Measurement(null, null, 0, 0) {
+        @Override
+        public void stop() {
+            // Nothing to record
+        }
+    };
+
+    private static final ProcessorTimings DISABLED = new ProcessorTimings(false);
+
+    // ThreadMXBean.getThreadAllocatedBytes(long) of com.sun.management or null if not available
+    private static final Method THREAD_ALLOCATED_BYTES = lookupThreadAllocatedBytes();
+
+    private final boolean enabled;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    public ProcessorTimings() {
+        this(true);
+    }
+
+    private ProcessorTimings(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Get timings which don't record anything
+     *
+     * @return disabled timings
+     */
+    public static ProcessorTimings disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Start measuring a single call
+     *
+     * @param type processor type like "enricher" or "generator"
+     * @param name name of the processor
+     * @param phase phase in which the processor is called
+     * @return measurement which must be stopped when the call has finished
+     */
+    public Measurement start(String type, String name, String phase) {
+        if (!enabled) {
+            return NO_MEASUREMENT;
+        }
+        return new Measurement(this, new String[] { type, name, phase }, System.nanoTime(), allocatedBytes());
+    }
+
+    /**
+     * Get all entries recorded so far, sorted by their accumulated time with the slowest first
+     *
+     * @return sorted entries
+     */
+    public synchronized List<Entry> getEntries() {
+        List<Entry> ret = new ArrayList<>(entries.values());
+        Collections.sort(ret, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry e1, Entry e2) {
+                return Long.compare(e2.getTimeNanos(), e1.getTimeNanos());
+            }
+        });
+        return ret;
+    }
+
+    /**
+     * Write all entries as JSON report
+     *
+     * @param file file to write to. Parent directories are created if needed.
+     */
+    public void writeReport(File file) throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create directory " + dir);
+        }
+        List<Map<String, Object>> report = new ArrayList<>();
+        for (Entry entry : getEntries()) {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("type", entry.getType());
+            json.put("name", entry.getName());
+            json.put("phase", entry.getPhase());
+            json.put("calls", entry.getCalls());
+            json.put("timeMillis", TimeUnit.NANOSECONDS.toMillis(entry.getTimeNanos()));
+            json.put("timeNanos", entry.getTimeNanos());
+            json.put("allocatedBytes", entry.getAllocatedBytes());
+            report.add(json);
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, report);
+    }
+
+    /**
+     * Log a summary table of all entries, slowest first
+     *
+     * @param log logger to print to
+     */
+    public void logSummary(Logger log) {
+        List<Entry> sorted = getEntries();
+        if (sorted.isEmpty()) {
+            return;
+        }
+        log.info("Processor timings:");
+        log.info("%-10s %-40s %-20s %6s %10s %14s", "Type", "Name", "Phase", "Calls", "Time [ms]", "Allocated [kB]");
+        for (Entry entry : sorted) {
+            log.info("%-10s %-40s %-20s %6d %10d %14s",
+                     entry.getType(), entry.getName(), entry.getPhase(), entry.getCalls(),
+                     TimeUnit.NANOSECONDS.toMillis(entry.getTimeNanos()),
+                     entry.getAllocatedBytes() < 0 ? "-" : String.valueOf(entry.getAllocatedBytes() / 1024));
+        }
+    }
+
+    // ==============================================================================================
+
+    private synchronized void record(String[] key, long timeNanos, long allocated) {
+        String id = key[0] + "/" + key[1] + "/" + key[2];
+        Entry entry = entries.get(id);
+        if (entry == null) {
+            entry = new Entry(key[0], key[1], key[2]);
+            entries.put(id, entry);
+        }
+        entry.calls++;
+        entry.timeNanos += timeNanos;
+        if (allocated < 0) {
+            entry.allocatedBytes = -1;
+        } else if (entry.allocatedBytes >= 0) {
+            entry.allocatedBytes += allocated;
+        }
+    }
+
+    // Bytes allocated by the current thread or -1 if not supported by the JVM
+    private static long allocatedBytes() {
+        if (THREAD_ALLOCATED_BYTES == null) {
+            return -1;
+        }
+        try {
+            return (Long) THREAD_ALLOCATED_BYTES.invoke(ManagementFactory.getThreadMXBean(), Thread.currentThread().getId());
+        } catch (Exception | LinkageError e) {
+            return -1;
+        }
+    }
+
+    // The extended bean of com.sun.management is looked up reflectively as not every JVM provides it
+    private static Method lookupThreadAllocatedBytes() {
+        try {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            Class<?> sunBeanClass = Class.forName("com.sun.management.ThreadMXBean");
+            if (!sunBeanClass.isInstance(bean) ||
+                !(Boolean) sunBeanClass.getMethod("isThreadAllocatedMemorySupported").invoke(bean) ||
+                !(Boolean) sunBeanClass.getMethod("isThreadAllocatedMemoryEnabled").invoke(bean)) {
+                return null;
+            }
+            return sunBeanClass.getMethod("getThreadAllocatedBytes", long.class);
+        } catch (Exception | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * A single running measurement
+     */
+    public static class Measurement {
+
+        private final ProcessorTimings timings;
+        private final String[] key;
+        private final long startNanos;
+        private final long startAllocated;
+
+        private Measurement(ProcessorTimings timings, String[] key, long startNanos, long startAllocated) {
+            this.timings = timings;
+            this.key = key;
+            this.startNanos = startNanos;
+            this.startAllocated = startAllocated;
+        }
+
+        /**
+         * Stop the measurement and record it. Must be called from the thread which started the measurement.
+         */
+        public void stop() {
+            long allocated = startAllocated < 0 ? -1 : allocatedBytes() - startAllocated;
+            timings.record(key, System.nanoTime() - startNanos, allocated);
+        }
+    }
+
+    /**
+     * Accumulated values for a processor in a certain phase
+     */
+    public static class Entry {
+
+        private final String type;
+        private final String name;
+        private final String phase;
+
+        private int calls;
+        private long timeNanos;
+        private long allocatedBytes;
+
+        private Entry(String type, String name, String phase) {
+            this.type = type;
+            this.name = name;
+            this.phase = phase;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getPhase() {
+            return phase;
+        }
+
+        public int getCalls() {
+            return calls;
+        }
+
+        public long getTimeNanos() {
+            return timeNanos;
+        }
+
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+    }
+}
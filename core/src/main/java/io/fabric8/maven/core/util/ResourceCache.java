@@ -0,0 +1,334 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.util;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import org.apache.commons.lang3.builder.RecursiveToStringStyle;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+
+/**
+ * Persistent build cache for generated resource descriptors. A {@link Fingerprint} is calculated over
+ * all inputs of the resource generation and stored together with the artifacts which have been attached
+ * to the project. When the fingerprint of a later run matches, the previously generated
+ * artifacts can be reused as they are.
+ *
+ * @since 17/10/26
+ */
+public class ResourceCache {
+
+    public static final String CACHE_FILE = "resource-cache.properties";
+
+    private static final String FINGERPRINT_KEY = "fingerprint";
+    private static final String ARTIFACT_PREFIX = "artifact.";
+
+    private final File cacheFile;
+
+    public ResourceCache(File workDir) {
+        this.cacheFile = new File(workDir, CACHE_FILE);
+    }
+
+    /**
+     * Lookup the artifacts stored for the given fingerprint.
+     *
+     * @param fingerprint fingerprint of the current inputs
+     * @return the artifacts stored for this fingerprint or <code>null</code> if there is no cache entry,
+     * the fingerprint doesn't match or any of the stored artifact files doesn't exist anymore.
+     */
+    public List<Artifact> lookup(String fingerprint) throws IOException {
+        if (!cacheFile.exists()) {
+            return null;
+        }
+        Properties props = new Properties();
+        try (InputStream is = new FileInputStream(cacheFile)) {
+            props.load(is);
+        }
+        if (!fingerprint.equals(props.getProperty(FINGERPRINT_KEY))) {
+            return null;
+        }
+        List<Artifact> ret = new ArrayList<>();
+        for (int i = 0; props.containsKey(ARTIFACT_PREFIX + i); i++) {
+            Artifact artifact = Artifact.parse(props.getProperty(ARTIFACT_PREFIX + i));
+            if (artifact == null || !artifact.getFile().exists()) {
+                return null;
+            }
+            ret.add(artifact);
+        }
+        return ret;
+    }
+
+    /**
+     * Store the given artifacts for a fingerprint, replacing any previous cache entry.
+     *
+     * @param fingerprint fingerprint of the inputs which lead to the artifacts
+     * @param artifacts artifacts attached to the project
+     */
+    public void store(String fingerprint, List<Artifact> artifacts) throws IOException {
+        File dir = cacheFile.getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create directory " + dir);
+        }
+        Properties props = new Properties();
+        props.setProperty(FINGERPRINT_KEY, fingerprint);
+        for (int i = 0; i < artifacts.size(); i++) {
+            props.setProperty(ARTIFACT_PREFIX + i, artifacts.get(i).toString());
+        }
+        try (OutputStream os = new FileOutputStream(cacheFile)) {
+            props.store(os, "fabric8:resource build cache");
+        }
+    }
+
+    /**
+     * Remove any stored cache entry
+     */
+    public void invalidate() {
+        if (cacheFile.exists() && !cacheFile.delete()) {
+            cacheFile.deleteOnExit();
+        }
+    }
+
+    // ===================================================================================================
+
+    /**
+     * An artifact which has been attached to the project
+     */
+    public static class Artifact {
+
+        private final String type;
+        private final String classifier;
+        private final File file;
+
+        public Artifact(String type, String classifier, File file) {
+            this.type = type;
+            this.classifier = classifier;
+            this.file = file;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public String getClassifier() {
+            return classifier;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        static Artifact parse(String value) {
+            String[] parts = value.split("\\|", 3);
+            return parts.length == 3 ? new Artifact(parts[0], parts[1], new File(parts[2])) : null;
+        }
+
+        @Override
+        public String toString() {
+            return type + "|" + classifier + "|" + file.getAbsolutePath();
+        }
+    }
+
+    /**
+     * Calculates a SHA-256 hash over named inputs. Objects are included by their full
+     * reflective representation, files by their content.
+     */
+    public static class Fingerprint {
+
+        private final MessageDigest digest;
+
+        public Fingerprint() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("No SHA-256 digest available", e);
+            }
+        }
+
+        /**
+         * Add an object to the fingerprint
+         *
+         * @param key name of the input
+         * @param value value to add. Configuration objects are recursively included field by field
+         * @return this fingerprint for chaining
+         */
+        public Fingerprint add(String key, Object value) {
+            update(key);
+            update(value == null ? "<null>" : asString(value));
+            return this;
+        }
+
+        /**
+         * Add all given properties sorted by their keys
+         *
+         * @param key name of the input
+         * @param properties properties to add
+         * @return this fingerprint for chaining
+         */
+        public Fingerprint addProperties(String key, Map<?, ?> properties) {
+            Map<String, String> sorted = new TreeMap<>();
+            if (properties != null) {
+                for (Map.Entry<?, ?> entry : properties.entrySet()) {
+                    sorted.put(String.valueOf(entry.getKey()), String.valueOf(entry.getValue()));
+                }
+            }
+            return add(key, sorted.toString());
+        }
+
+        /**
+         * Add a file or recursively the content of a directory. Files within a directory are
+         * added in lexical order, including their relative path.
+         *
+         * @param key name of the input
+         * @param file file or directory to add. If it doesn't exist, only this fact is recorded.
+         * @return this fingerprint for chaining
+         */
+        public Fingerprint addFile(String key, File file) throws IOException {
+            update(key);
+            if (file == null || !file.exists()) {
+                update("<missing>");
+            } else {
+                addFileContent("", file);
+            }
+            return this;
+        }
+
+        /**
+         * Add a file or recursively all files of a directory by path, size and modification time only. Cheaper than
+         * {@link #addFile(String, File)} for large directories like compiled classes, but also changes when a file
+         * is rewritten with the same content.
+         *
+         * @param key name of the input
+         * @param file file or directory to add. If it doesn't exist, only this fact is recorded.
+         * @return this fingerprint for chaining
+         */
+        public Fingerprint addFileStamps(String key, File file) {
+            return addFileStamps(key, file, null);
+        }
+
+        /**
+         * Like {@link #addFileStamps(String, File)}, but only for the files within a directory accepted by a filter
+         *
+         * @param key name of the input
+         * @param file file or directory to add. If it doesn't exist, only this fact is recorded.
+         * @param filter filter for the files to add, directories are always descended into. <code>null</code> adds all files.
+         * @return this fingerprint for chaining
+         */
+        public Fingerprint addFileStamps(String key, File file, FileFilter filter) {
+            update(key);
+            if (file == null || !file.exists()) {
+                update("<missing>");
+            } else {
+                addFileStamp("", file, filter);
+            }
+            return this;
+        }
+
+        /**
+         * Get the fingerprint as hex string. The fingerprint can't be updated anymore afterwards.
+         *
+         * @return hex encoded hash
+         */
+        public String getHash() {
+            byte[] hash = digest.digest();
+            StringBuilder ret = new StringBuilder();
+            for (byte b : hash) {
+                ret.append(String.format("%02x", b));
+            }
+            return ret.toString();
+        }
+
+        private void addFileContent(String path, File file) throws IOException {
+            if (file.isDirectory()) {
+                String[] names = file.list();
+                if (names == null) {
+                    return;
+                }
+                Arrays.sort(names);
+                for (String name : names) {
+                    addFileContent(path + "/" + name, new File(file, name));
+                }
+            } else {
+                update(path);
+                byte[] buffer = new byte[8192];
+                try (InputStream is = new FileInputStream(file)) {
+                    int len;
+                    while ((len = is.read(buffer)) != -1) {
+                        digest.update(buffer, 0, len);
+                    }
+                }
+            }
+        }
+
+        private void addFileStamp(String path, File file, FileFilter filter) {
+            if (file.isDirectory()) {
+                String[] names = file.list();
+                if (names == null) {
+                    return;
+                }
+                Arrays.sort(names);
+                for (String name : names) {
+                    addFileStamp(path + "/" + name, new File(file, name), filter);
+                }
+            } else if (filter == null || filter.accept(file)) {
+                update(path + ":" + file.length() + ":" + file.lastModified());
+            }
+        }
+
+        private void update(String value) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+
+        private String asString(Object value) {
+            if (value instanceof Enum || value.getClass().getName().startsWith("java.")) {
+                if (value instanceof Iterable) {
+                    return asString((Iterable) value);
+                }
+                return value.toString();
+            }
+            return ReflectionToStringBuilder.toString(value, new StableToStringStyle());
+        }
+
+        private String asString(Iterable values) {
+            List<String> ret = new ArrayList<>();
+            for (Object element : values) {
+                ret.add(element == null ? "<null>" : asString(element));
+            }
+            return ret.toString();
+        }
+    }
+
+    // Recursive style without identity hash codes so that the representation is stable across runs
+    private static class StableToStringStyle extends RecursiveToStringStyle {
+        StableToStringStyle() {
+            setUseIdentityHashCode(false);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Log file which is only appended to and rotated when it reaches a maximum size. Lines are collected in
+ * a buffer and written to the file channel when the buffer is full, with the next line arriving at least a
+ * second after the previous write, on {@link #flush()} and when the file is closed. Callers must flush
+ * regularly to get lines written when no more lines arrive.
+ *
+ * On rotation <code>name</code> is renamed to <code>name.1</code>, <code>name.1</code> to <code>name.2</code>
+ * and so on. The oldest file is deleted when the maximum number of rotated files is exceeded.
+ *
+ * @since 17/10/26
+ */
+public class RotatingLogFile implements Closeable {
+
+    private static final int BUFFER_SIZE = 65536;
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final File file;
+    private final long maxFileSize;
+    private final int maxRotatedFiles;
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private FileChannel channel;
+    // Size of the current file including the buffered bytes
+    private long size;
+    private long lastFlushNanos = System.nanoTime();
+
+    /**
+     * @param file file to write to, parent directories are created when needed
+     * @param maxFileSize size in bytes after which the file is rotated, a value &lt;= 0 disables rotation
+     * @param maxRotatedFiles number of rotated files to keep
+     * @throws IOException if the file can't be opened
+     */
+    public RotatingLogFile(File file, long maxFileSize, int maxRotatedFiles) throws IOException {
+        this.file = file;
+        this.maxFileSize = maxFileSize;
+        this.maxRotatedFiles = Math.max(0, maxRotatedFiles);
+        open();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Append a line, a line terminator is added.
+     *
+     * @param line buffer holding the line
+     * @param offset start of the line
+     * @param length length of the line in bytes
+     * @throws IOException if writing fails
+     */
+    public synchronized void writeLine(byte[] line, int offset, int length) throws IOException {
+        if (channel == null) {
+            throw new IOException("Log file " + file + " has been closed");
+        }
+        if (maxFileSize > 0 && size > 0 && size + length + 1 > maxFileSize) {
+            rotate();
+        }
+        while (length > 0) {
+            if (!buffer.hasRemaining()) {
+                flushBuffer();
+            }
+            int chunk = Math.min(length, buffer.remaining());
+            buffer.put(line, offset, chunk);
+            offset += chunk;
+            length -= chunk;
+            size += chunk;
+        }
+        if (!buffer.hasRemaining()) {
+            flushBuffer();
+        }
+        buffer.put((byte) '\n');
+        size++;
+        if (System.nanoTime() - lastFlushNanos >= FLUSH_INTERVAL_NANOS) {
+            flushBuffer();
+        }
+    }
+
+    /**
+     * Write all buffered lines to the file
+     *
+     * @throws IOException if writing fails
+     */
+    public synchronized void flush() throws IOException {
+        if (channel != null && buffer.position() > 0) {
+            flushBuffer();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            try {
+                flushBuffer();
+            } finally {
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+
+    private void open() throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create directory " + dir);
+        }
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        size = channel.size();
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        lastFlushNanos = System.nanoTime();
+    }
+
+    private void rotate() throws IOException {
+        flushBuffer();
+        channel.close();
+        channel = null;
+        if (maxRotatedFiles == 0) {
+            Files.delete(file.toPath());
+        } else {
+            Files.deleteIfExists(getRotatedFile(maxRotatedFiles).toPath());
+            for (int i = maxRotatedFiles - 1; i > 0; i--) {
+                File rotated = getRotatedFile(i);
+                if (rotated.exists()) {
+                    Files.move(rotated.toPath(), getRotatedFile(i + 1).toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move(file.toPath(), getRotatedFile(1).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        open();
+    }
+
+    private File getRotatedFile(int index) {
+        return new File(file.getPath() + "." + index);
+    }
+}
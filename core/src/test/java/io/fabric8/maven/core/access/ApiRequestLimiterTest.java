@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.access;
+
+import java.io.IOException;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ApiRequestLimiterTest {
+
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void retryThrottled() throws IOException {
+        ApiRequestLimiter limiter = new ApiRequestLimiter(new ApiRequestLimiter.Settings(0, 0, 16, 3));
+        assertEquals(4, limiter.getConcurrencyLimit());
+        server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "0"));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody("ok"));
+
+        try (Response response = call(limiter)) {
+            assertEquals(200, response.code());
+        }
+        assertEquals(2, server.getRequestCount());
+        // Halved because of throttling
+        assertEquals(2, limiter.getConcurrencyLimit());
+    }
+
+    @Test
+    public void noRetriesLeft() throws IOException {
+        ApiRequestLimiter limiter = new ApiRequestLimiter(new ApiRequestLimiter.Settings(0, 0, 16, 0));
+        server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "0"));
+
+        try (Response response = call(limiter)) {
+            assertEquals(429, response.code());
+        }
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void rateLimited() throws IOException {
+        // 20 requests per second without burst: 5 requests need at least 200ms
+        ApiRequestLimiter limiter = new ApiRequestLimiter(new ApiRequestLimiter.Settings(20, 1, 0, 0));
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 5; i++) {
+            server.enqueue(new MockResponse().setResponseCode(200));
+            call(limiter).close();
+        }
+        assertTrue(System.currentTimeMillis() - start >= 190);
+    }
+
+    @Test
+    public void concurrencyGrowsWhenHealthy() {
+        ApiRequestLimiter limiter = new ApiRequestLimiter(new ApiRequestLimiter.Settings(0, 0, 8, 0));
+        for (int i = 0; i < 100; i++) {
+            limiter.releaseConcurrencySlot(ApiRequestLimiter.Outcome.ANSWERED);
+        }
+        assertEquals(8, limiter.getConcurrencyLimit());
+        limiter.releaseConcurrencySlot(ApiRequestLimiter.Outcome.OVERLOADED);
+        assertEquals(4, limiter.getConcurrencyLimit());
+    }
+
+    @Test
+    public void clientFailuresKeepConcurrency() {
+        ApiRequestLimiter limiter = new ApiRequestLimiter(new ApiRequestLimiter.Settings(0, 0, 8, 0));
+        for (int i = 0; i < 10; i++) {
+            limiter.releaseConcurrencySlot(ApiRequestLimiter.Outcome.FAILED);
+        }
+        assertEquals(4, limiter.getConcurrencyLimit());
+    }
+
+    private Response call(ApiRequestLimiter limiter) throws IOException {
+        OkHttpClient client = new OkHttpClient.Builder().addInterceptor(limiter).build();
+        return client.newCall(new Request.Builder().url(server.url("/api/v1/pods")).build()).execute();
+    }
+}
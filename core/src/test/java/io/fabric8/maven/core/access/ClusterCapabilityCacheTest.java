@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.access;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import io.fabric8.kubernetes.client.Config;
+import io.fabric8.kubernetes.client.ConfigBuilder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ClusterCapabilityCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void memoryOnly() throws IOException {
+        ClusterCapabilityCache cache = new ClusterCapabilityCache();
+        ClusterCapabilities capabilities = new ClusterCapabilities(true, true, Arrays.asList("/oapi"), "v3.6.0");
+        cache.put("key", capabilities);
+        assertSame(capabilities, cache.get("key"));
+        assertNull(cache.get("other"));
+        cache.clear();
+        assertNull(cache.get("key"));
+    }
+
+    @Test
+    public void persistedWithTtl() throws IOException {
+        File file = new File(folder.getRoot(), "cache/capabilities.properties");
+        ClusterCapabilityCache cache = new ClusterCapabilityCache();
+        cache.configure(file, 3600);
+        cache.put("key", new ClusterCapabilities(true, false, Arrays.asList("/oapi", "/apis/apps"), "v1.6.1"));
+        assertTrue(file.exists());
+
+        // A fresh cache, like in a later build
+        ClusterCapabilityCache later = new ClusterCapabilityCache();
+        later.configure(file, 3600);
+        ClusterCapabilities read = later.get("key");
+        assertTrue(read.isReachable());
+        assertTrue(read.isOpenShift());
+        assertFalse(read.isOpenShiftImageStream());
+        assertEquals(Arrays.asList("/oapi", "/apis/apps"), read.getApiPaths());
+        assertEquals("v1.6.1", read.getServerVersion());
+
+        // Disabled file cache
+        ClusterCapabilityCache disabled = new ClusterCapabilityCache();
+        disabled.configure(file, 0);
+        assertNull(disabled.get("key"));
+    }
+
+    @Test
+    public void unreachableIsNotPersisted() throws IOException {
+        File file = new File(folder.getRoot(), "capabilities.properties");
+        ClusterCapabilityCache cache = new ClusterCapabilityCache();
+        cache.configure(file, 3600);
+        cache.put("key", ClusterCapabilities.unreachable());
+        assertFalse(cache.get("key").isReachable());
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void unreachableExpires() throws Exception {
+        ClusterCapabilityCache cache = new ClusterCapabilityCache();
+        cache.setUnreachableTtlMillis(50);
+        cache.put("key", ClusterCapabilities.unreachable());
+        assertFalse(cache.get("key").isReachable());
+        Thread.sleep(100);
+        assertNull(cache.get("key"));
+    }
+
+    @Test
+    public void keyPerMasterAndUser() {
+        Config alice = new ConfigBuilder().withMasterUrl("https://cluster:8443").withOauthToken("alice").build();
+        Config bob = new ConfigBuilder().withMasterUrl("https://cluster:8443").withOauthToken("bob").build();
+        Config otherCluster = new ConfigBuilder().withMasterUrl("https://other:8443").withOauthToken("alice").build();
+        String key = ClusterCapabilityCache.createKey(alice);
+        assertEquals(key, ClusterCapabilityCache.createKey(alice));
+        assertNotEquals(key, ClusterCapabilityCache.createKey(bob));
+        assertNotEquals(key, ClusterCapabilityCache.createKey(otherCluster));
+        assertFalse(key.contains("alice"));
+    }
+}
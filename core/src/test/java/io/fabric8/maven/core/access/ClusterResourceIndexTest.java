@@ -0,0 +1,66 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.access;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.ServiceBuilder;
+import io.fabric8.kubernetes.api.model.ServiceListBuilder;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ClusterResourceIndexTest {
+
+    @Test
+    public void lookup() {
+        ClusterResourceIndex index = new ClusterResourceIndex("test");
+        index.addAll("Service", new ServiceListBuilder()
+            .addNewItem().withNewMetadata().withName("web").endMetadata().endItem()
+            .addNewItem().withNewMetadata().withName("db").endMetadata().endItem()
+            .build());
+
+        assertTrue(index.isIndexed("Service"));
+        assertFalse(index.isIndexed("ConfigMap"));
+        assertEquals(2, index.getAll("Service").size());
+        assertNull(index.getAll("ConfigMap"));
+
+        assertNotNull(index.get("Service", "web"));
+        assertNull(index.get("Service", "other"));
+
+        assertFalse(index.isMissing("test", "Service", "web"));
+        assertTrue(index.isMissing("test", "Service", "other"));
+        // Unknown for other namespaces or kinds which are not indexed
+        assertFalse(index.isMissing("other", "Service", "other"));
+        assertFalse(index.isMissing("test", "ConfigMap", "config"));
+    }
+
+    @Test
+    public void kinds() {
+        Set<String> kinds = ClusterResourceIndex.getKinds(Arrays.<HasMetadata>asList(
+            new ServiceBuilder().withNewMetadata().withName("web").endMetadata().build(),
+            new ConfigMapBuilder().withNewMetadata().withName("config").endMetadata().build(),
+            new ServiceBuilder().withNewMetadata().withName("db").endMetadata().build()));
+        assertEquals(Arrays.asList("Service", "ConfigMap"), Arrays.asList(kinds.toArray()));
+    }
+}
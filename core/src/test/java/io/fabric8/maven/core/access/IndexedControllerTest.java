@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.access;
+
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
+import io.fabric8.kubernetes.api.model.ConfigMapListBuilder;
+import io.fabric8.kubernetes.api.model.SecretBuilder;
+import io.fabric8.kubernetes.api.model.SecretListBuilder;
+import io.fabric8.kubernetes.api.model.Service;
+import io.fabric8.kubernetes.api.model.ServiceBuilder;
+import io.fabric8.kubernetes.api.model.ServiceListBuilder;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.server.mock.KubernetesMockServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IndexedControllerTest {
+
+    private KubernetesMockServer server;
+    private KubernetesClient client;
+    private IndexedController controller;
+
+    @Before
+    public void setUp() {
+        server = new KubernetesMockServer(false);
+        server.init();
+        client = server.createClient();
+        controller = new IndexedController(client) {
+            @Override
+            public void applyNamespace(String namespace) {
+                // The controller checks the namespace of every resource, which is not covered by the index
+            }
+        };
+        controller.setNamespace("test");
+
+        ClusterResourceIndex index = new ClusterResourceIndex("test");
+        index.addAll("Service", new ServiceListBuilder().addToItems(createService("live")).build());
+        index.addAll("ConfigMap", new ConfigMapListBuilder().addToItems(
+            new ConfigMapBuilder(createConfigMap("1")).editMetadata().withResourceVersion("42").endMetadata().build()).build());
+        index.addAll("Secret", new SecretListBuilder().build());
+        controller.setResourceIndex(index);
+    }
+
+    @After
+    public void tearDown() {
+        server.destroy();
+    }
+
+    @Test
+    public void unchanged() throws Exception {
+        controller.applyService(createService("live"), "test");
+        assertEquals(0, server.getRequestCount());
+    }
+
+    @Test
+    public void changed() throws Exception {
+        server.expect().withPath("/api/v1/namespaces/test/configmaps/config").andReturn(200, createConfigMap("2")).once();
+
+        controller.applyResource(createConfigMap("2"), "test", client.configMaps());
+
+        // Replaced with the indexed resource version without looking it up first
+        RecordedRequest request = server.takeRequest();
+        assertEquals("PUT", request.getMethod());
+        assertTrue(request.getBody().readUtf8().contains("\"resourceVersion\":\"42\""));
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void missing() throws Exception {
+        server.expect().withPath("/api/v1/namespaces/test/secrets").andReturn(201, "{}").once();
+
+        controller.applySecret(new SecretBuilder().withNewMetadata().withName("secret").endMetadata().build(), "test");
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("POST", request.getMethod());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void notIndexed() throws Exception {
+        controller.setResourceIndex(new ClusterResourceIndex("other"));
+        server.expect().withPath("/api/v1/namespaces/test/services/live").andReturn(200, createService("live")).once();
+
+        controller.applyService(createService("live"), "test");
+
+        // Looked up by the controller itself
+        assertEquals("GET", server.takeRequest().getMethod());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    private Service createService(String name) {
+        return new ServiceBuilder()
+            .withNewMetadata().withName(name).endMetadata()
+            .withNewSpec().addNewPort().withPort(80).endPort().endSpec()
+            .build();
+    }
+
+    private ConfigMap createConfigMap(String value) {
+        return new ConfigMapBuilder()
+            .withNewMetadata().withName("config").endMetadata()
+            .addToData("value", value)
+            .build();
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.access;
+
+import io.fabric8.kubernetes.client.Config;
+import io.fabric8.kubernetes.client.ConfigBuilder;
+import io.fabric8.kubernetes.client.HttpClientAware;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import okhttp3.OkHttpClient;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class KubernetesClientPoolTest {
+
+    @Test
+    public void sharedConnections() {
+        KubernetesClientPool pool = new KubernetesClientPool();
+        Config config = createConfig("test");
+        KubernetesClient first = pool.acquireKubernetesClient(config);
+        KubernetesClient second = pool.acquireKubernetesClient(config);
+        KubernetesClient other = pool.acquireKubernetesClient(createConfig("other"));
+
+        assertSame(httpClient(first), httpClient(second));
+        assertNotSame(httpClient(first), httpClient(other));
+        assertEquals(2, pool.getReferenceCount(config));
+
+        first.close();
+        // Closing twice releases only once
+        first.close();
+        assertEquals(1, pool.getReferenceCount(config));
+
+        // Still in use, so not closed
+        OkHttpClient httpClient = httpClient(second);
+        pool.closeIdle();
+        assertFalse(httpClient.dispatcher().executorService().isShutdown());
+
+        second.close();
+        pool.closeIdle();
+        assertEquals(0, pool.getReferenceCount(config));
+        assertEquals(0, httpClient.connectionPool().connectionCount());
+        // Later clients get new connections
+        KubernetesClient third = pool.acquireKubernetesClient(config);
+        assertNotSame(httpClient, httpClient(third));
+        third.close();
+
+        pool.closeAll();
+        assertEquals(0, pool.getReferenceCount(createConfig("other")));
+        assertTrue(httpClient(other).dispatcher().executorService().isShutdown());
+    }
+
+    @Test
+    public void releaseWithScope() throws Exception {
+        final KubernetesClientPool pool = new KubernetesClientPool();
+        final Config config = createConfig("test");
+        KubernetesClient outside = pool.acquireKubernetesClient(config);
+        try (KubernetesClientPool.Scope scope = pool.openScope()) {
+            pool.acquireKubernetesClient(config);
+            pool.acquireOpenShiftClient(config);
+            // Threads started within the scope share it
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    pool.acquireKubernetesClient(config);
+                }
+            };
+            thread.start();
+            thread.join();
+            assertEquals(4, pool.getReferenceCount(config));
+        }
+        // Only the client acquired outside of the scope is left
+        assertEquals(1, pool.getReferenceCount(config));
+        pool.acquireKubernetesClient(config);
+        assertEquals(2, pool.getReferenceCount(config));
+        outside.close();
+        pool.closeAll();
+    }
+
+    @Test
+    public void separateConnectionsPerIdentity() {
+        KubernetesClientPool pool = new KubernetesClientPool();
+        // Certificate based authentication, without user name and token
+        assertNotEquals(
+            KubernetesClientPool.createKey(new ConfigBuilder(createConfig("test")).withClientCertFile("/certs/dev.crt").build()),
+            KubernetesClientPool.createKey(new ConfigBuilder(createConfig("test")).withClientCertFile("/certs/admin.crt").build()));
+        assertNotEquals(
+            KubernetesClientPool.createKey(new ConfigBuilder(createConfig("test")).withClientKeyData("a2V5MQ==").build()),
+            KubernetesClientPool.createKey(new ConfigBuilder(createConfig("test")).withClientKeyData("a2V5Mg==").build()));
+        assertNotEquals(
+            KubernetesClientPool.createKey(new ConfigBuilder(createConfig("test")).withCaCertFile("/certs/ca1.crt").build()),
+            KubernetesClientPool.createKey(new ConfigBuilder(createConfig("test")).withCaCertFile("/certs/ca2.crt").build()));
+        assertEquals(KubernetesClientPool.createKey(createConfig("test")), KubernetesClientPool.createKey(createConfig("test")));
+
+        KubernetesClient admin = pool.acquireKubernetesClient(
+            new ConfigBuilder(createConfig("test")).withUsername("admin").withPassword("first").build());
+        KubernetesClient otherPassword = pool.acquireKubernetesClient(
+            new ConfigBuilder(createConfig("test")).withUsername("admin").withPassword("second").build());
+
+        assertNotSame(httpClient(admin), httpClient(otherPassword));
+        pool.closeAll();
+    }
+
+    private OkHttpClient httpClient(KubernetesClient client) {
+        return ((HttpClientAware) client).getHttpClient();
+    }
+
+    private Config createConfig(String namespace) {
+        return new ConfigBuilder().withMasterUrl("https://localhost:8443").withNamespace(namespace).build();
+    }
+}
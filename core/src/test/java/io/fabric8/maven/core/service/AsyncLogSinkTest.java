@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.service;
+
+import io.fabric8.maven.docker.util.Logger;
+import org.junit.Test;
+
+import mockit.Mocked;
+import mockit.Verifications;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncLogSinkTest {
+
+    @Mocked
+    private Logger log;
+
+    @Test
+    public void dropLinesWhenQueueIsFull() {
+        AsyncLogSink sink = new AsyncLogSink(log, 2, 0);
+        // Printer not started, so only two lines fit into the queue
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i < 2, sink.offer("web-1/app", "line " + i));
+        }
+        assertEquals(3, sink.getDroppedLines());
+        assertEquals(0, sink.getSuppressedLines());
+        sink.close();
+    }
+
+    @Test
+    public void suppressLinesAboveRate() {
+        AsyncLogSink sink = new AsyncLogSink(log, 100, 3);
+        byte[] line = "line".getBytes();
+        int queued = 0;
+        for (int i = 0; i < 10; i++) {
+            if (sink.offer(null, line, 0, line.length)) {
+                queued++;
+            }
+        }
+        // Might span two rate windows on a very slow machine
+        assertEquals(queued, 10 - sink.getSuppressedLines());
+        assertTrue(queued >= 3 && queued <= 6);
+        assertEquals(0, sink.getDroppedLines());
+        sink.close();
+    }
+
+    @Test
+    public void drainQueueOnClose() {
+        AsyncLogSink sink = new AsyncLogSink(log, 2, 0, false);
+        sink.start();
+        // Waits while the queue is full instead of dropping lines
+        for (int i = 0; i < 50; i++) {
+            assertTrue(sink.offer(null, "line " + i));
+        }
+        sink.close();
+        assertEquals(0, sink.getDroppedLines());
+
+        new Verifications() {{
+            log.info("[[s]]%s", (Object[]) any); times = 50;
+        }};
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LogLineFilterTest {
+
+    @Test
+    public void includeAndExclude() {
+        LogLineFilter filter = new LogLineFilter(Pattern.compile("ERROR|WARN"), Pattern.compile("healthcheck"));
+        assertTrue(accept(filter, "12:00 ERROR Connection refused"));
+        assertFalse(accept(filter, "12:00 INFO Started"));
+        assertFalse(accept(filter, "12:00 WARN healthcheck slow"));
+        assertTrue(filter.accept("12:01 WARN Über-long request"));
+    }
+
+    @Test
+    public void acceptAll() {
+        LogLineFilter filter = new LogLineFilter(null, null);
+        assertTrue(filter.isAcceptingAll());
+        assertTrue(accept(filter, "anything"));
+    }
+
+    @Test
+    public void longLines() {
+        LogLineFilter filter = new LogLineFilter(null, Pattern.compile("needle"));
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            line.append("hay ");
+        }
+        assertTrue(accept(filter, line.toString()));
+        assertFalse(accept(filter, line.append("needle").toString()));
+    }
+
+    private boolean accept(LogLineFilter filter, String line) {
+        byte[] bytes = ("prefix" + line).getBytes(StandardCharsets.UTF_8);
+        return filter.accept(bytes, 6, bytes.length - 6);
+    }
+}
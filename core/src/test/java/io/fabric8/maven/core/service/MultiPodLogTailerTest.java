@@ -0,0 +1,61 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import io.fabric8.maven.docker.util.Logger;
+import org.junit.Test;
+
+import mockit.Mocked;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MultiPodLogTailerTest {
+
+    @Mocked
+    private Logger log;
+
+    @Test
+    public void detach() {
+        MultiPodLogTailer tailer = new MultiPodLogTailer(log, new AsyncLogSink(log, 10, 0), null, null, null);
+        RecordingCloseable first = new RecordingCloseable();
+        RecordingCloseable second = new RecordingCloseable();
+        tailer.addSource("web-1/app", first);
+        tailer.addSource("web-2/app", second);
+        assertTrue(tailer.isAttached("web-1"));
+        assertFalse(tailer.isAttached("web"));
+
+        tailer.detach("web-1");
+        assertFalse(tailer.isAttached("web-1"));
+        assertTrue(first.closed);
+        assertTrue(tailer.isAttached("web-2"));
+        tailer.close();
+        assertFalse(tailer.isAttached("web-2"));
+        assertTrue(second.closed);
+    }
+
+    private static class RecordingCloseable implements Closeable {
+        private boolean closed;
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.service;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import io.fabric8.maven.core.util.RotatingLogFile;
+import io.fabric8.maven.docker.util.Logger;
+import mockit.Mocked;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * @since 17/10/26
+ */
+public class PodLogFilesTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mocked
+    private Logger log;
+
+    @Test
+    public void flushQuietFiles() throws Exception {
+        try (PodLogFiles files = new PodLogFiles(folder.getRoot(), 0, 0, log)) {
+            RotatingLogFile file = files.open("web-1", "app");
+            assertNotNull(file);
+            byte[] line = "last line".getBytes(StandardCharsets.UTF_8);
+            files.writeLine(file, line, 0, line.length);
+
+            // No further lines and no close, the flusher must write the line
+            File path = new File(folder.getRoot(), "web-1_app.log");
+            long deadline = System.currentTimeMillis() + 5000;
+            while (path.length() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertEquals(line.length + 1, path.length());
+        }
+    }
+}
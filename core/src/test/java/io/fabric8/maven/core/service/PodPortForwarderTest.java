@@ -0,0 +1,165 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.fabric8.maven.docker.util.Logger;
+import mockit.Mocked;
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
+import okio.ByteString;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @since 17/10/26
+ */
+public class PodPortForwarderTest {
+
+    @Mocked
+    private Logger log;
+
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void forwardConnection() throws Exception {
+        expectEchoingPod();
+        try (PodPortForwarder forwarder = new PodPortForwarder(new OkHttpClient(), server.url("/").toString(), log);
+             PodPortForwarder.Forward forward = forwarder.forward("test", "pod1", 8080, 0);
+             Socket socket = new Socket(InetAddress.getLoopbackAddress(), forward.getLocalPort())) {
+            socket.setSoTimeout(10000);
+            InputStream in = socket.getInputStream();
+            assertEquals("hello", read(in, 5));
+
+            OutputStream out = socket.getOutputStream();
+            out.write("ping".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            assertEquals("ping", read(in, 4));
+
+            assertEquals("/api/v1/namespaces/test/pods/pod1/portforward?ports=8080", server.takeRequest().getPath());
+        }
+    }
+
+    @Test
+    public void rebindAfterClose() throws Exception {
+        try (PodPortForwarder forwarder = new PodPortForwarder(new OkHttpClient(), server.url("/").toString(), log)) {
+            PodPortForwarder.Forward forward = forwarder.forward("test", "pod1", 8080, 0);
+            int port = forward.getLocalPort();
+            forward.close();
+            forward.await();
+            forwarder.forward("test", "pod2", 8080, port).close();
+        }
+    }
+
+    @Test
+    public void uploadMoreThanWebSocketQueue() throws Exception {
+        final int size = 20 * 1024 * 1024;
+        final AtomicLong received = new AtomicLong();
+        final CountDownLatch done = new CountDownLatch(1);
+        server.enqueue(new MockResponse().withWebSocketUpgrade(new PodListener() {
+            @Override
+            public void onMessage(WebSocket webSocket, ByteString bytes) {
+                // Without the channel byte
+                if (received.addAndGet(bytes.size() - 1) == size) {
+                    done.countDown();
+                }
+            }
+        }));
+        try (PodPortForwarder forwarder = new PodPortForwarder(new OkHttpClient(), server.url("/").toString(), log);
+             PodPortForwarder.Forward forward = forwarder.forward("test", "pod1", 8080, 0);
+             Socket socket = new Socket(InetAddress.getLoopbackAddress(), forward.getLocalPort())) {
+            OutputStream out = socket.getOutputStream();
+            byte[] chunk = new byte[64 * 1024];
+            for (int written = 0; written < size; written += chunk.length) {
+                out.write(chunk);
+            }
+            out.flush();
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+            assertEquals(size, received.get());
+        }
+    }
+
+    // Behaves like the pod: announces the port on both channels, greets and then echoes all data
+    private void expectEchoingPod() {
+        server.enqueue(new MockResponse().withWebSocketUpgrade(new PodListener() {
+            @Override
+            public void onOpen(WebSocket webSocket, Response response) {
+                super.onOpen(webSocket, response);
+                webSocket.send(new Buffer().writeByte(0).writeUtf8("hello").readByteString());
+            }
+
+            @Override
+            public void onMessage(WebSocket webSocket, ByteString bytes) {
+                webSocket.send(bytes);
+            }
+        }));
+    }
+
+    private String read(InputStream in, int length) throws IOException {
+        byte[] data = new byte[length];
+        int read = 0;
+        while (read < length) {
+            int count = in.read(data, read, length - read);
+            if (count < 0) {
+                break;
+            }
+            read += count;
+        }
+        return new String(data, 0, read, StandardCharsets.UTF_8);
+    }
+
+    private static class PodListener extends WebSocketListener {
+        @Override
+        public void onOpen(WebSocket webSocket, Response response) {
+            webSocket.send(ByteString.of((byte) 0, (byte) 0x90, (byte) 0x1f));
+            webSocket.send(ByteString.of((byte) 1, (byte) 0x90, (byte) 0x1f));
+        }
+
+        @Override
+        public void onClosing(WebSocket webSocket, int code, String reason) {
+            webSocket.close(code, reason);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodBuilder;
+import io.fabric8.kubernetes.client.server.mock.KubernetesMockServer;
+import io.fabric8.maven.core.util.LineSplitter;
+import io.fabric8.maven.docker.util.Logger;
+import mockit.Mocked;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ResumableLogWatchTest {
+
+    private static final String LOG_PATH = "/api/v1/namespaces/test/pods/pod1/log?follow=true&timestamps=true&container=app";
+    private static final String POD_PATH = "/api/v1/namespaces/test/pods/pod1";
+
+    @Mocked
+    private Logger log;
+
+    private KubernetesMockServer server;
+
+    @Before
+    public void setUp() {
+        server = new KubernetesMockServer(false);
+        server.init();
+    }
+
+    @After
+    public void tearDown() {
+        server.destroy();
+    }
+
+    @Test
+    public void resumeAfterReconnectAndStopWhenTerminated() throws Exception {
+        server.expect().withPath(LOG_PATH).andReturn(200,
+            "2017-10-26T08:15:30.1Z first\n" +
+            "2017-10-26T08:15:30.2Z second\n").once();
+        server.expect().withPath(POD_PATH).andReturn(200, createPod(null)).once();
+        // The server resumes at the start of the second, so the second line is sent again
+        server.expect().withPath(LOG_PATH + "&sinceTime=2017-10-26T08:15:30Z").andReturn(200,
+            "2017-10-26T08:15:30.1Z first\n" +
+            "2017-10-26T08:15:30.2Z second\n" +
+            "2017-10-26T08:15:31Z third\n").once();
+        server.expect().withPath(POD_PATH).andReturn(200, createPod("Never")).once();
+
+        List<String> lines = new ArrayList<>();
+        ResumableLogWatch watch = new ResumableLogWatch(server.createClient(), "test", "pod1", "app", null,
+                                                        collect(lines), log);
+        watch.follow();
+
+        assertEquals(Arrays.asList("first", "second", "third"), lines);
+        assertEquals(ResumableLogWatch.parseTimestamp(bytes("2017-10-26T08:15:31Z"), 0, 20),
+                     (long) watch.getLastTimestamp());
+        // No reconnect once the container has terminated
+        assertEquals(4, server.getRequestCount());
+    }
+
+    @Test
+    public void resumeFromEarlierWatch() throws Exception {
+        long last = ResumableLogWatch.parseTimestamp(bytes("2017-10-26T08:15:30.2Z"), 0, 22);
+        server.expect().withPath(LOG_PATH + "&sinceTime=2017-10-26T08:15:30Z").andReturn(200,
+            "2017-10-26T08:15:30.2Z old\n" +
+            "2017-10-26T08:15:30.200000001Z new\n").once();
+        server.expect().withPath(POD_PATH).andReturn(200, createPod("Never")).once();
+
+        List<String> lines = new ArrayList<>();
+        new ResumableLogWatch(server.createClient(), "test", "pod1", "app", last, collect(lines), log).follow();
+
+        assertEquals(Arrays.asList("new"), lines);
+        RecordedRequest request = server.takeRequest();
+        assertEquals(LOG_PATH + "&sinceTime=2017-10-26T08:15:30Z", request.getPath());
+    }
+
+    @Test
+    public void stopWhenPodIsGone() throws Exception {
+        server.expect().withPath(LOG_PATH).andReturn(404, "").once();
+
+        List<String> lines = new ArrayList<>();
+        new ResumableLogWatch(server.createClient(), "test", "pod1", "app", null, collect(lines), log).follow();
+
+        assertEquals(0, lines.size());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void timestamps() {
+        assertEquals(0, ResumableLogWatch.parseTimestamp(bytes("1970-01-01T00:00:00Z"), 0, 20));
+        assertEquals(TimeUnit.SECONDS.toNanos(1509005730) + 123456789,
+                     ResumableLogWatch.parseTimestamp(bytes("2017-10-26T08:15:30.123456789Z"), 0, 30));
+        assertEquals(TimeUnit.SECONDS.toNanos(1509005730) + 500000000,
+                     ResumableLogWatch.parseTimestamp(bytes("2017-10-26T10:15:30.5+02:00"), 0, 27));
+        // Leap day
+        assertEquals(TimeUnit.SECONDS.toNanos(1582934400),
+                     ResumableLogWatch.parseTimestamp(bytes("2020-02-29T00:00:00Z"), 0, 20));
+        // Offset within a line
+        assertEquals(0, ResumableLogWatch.parseTimestamp(bytes("xx1970-01-01T00:00:00Z"), 2, 20));
+
+        assertEquals(-1, ResumableLogWatch.parseTimestamp(bytes("Exception in thread"), 0, 9));
+        assertEquals(-1, ResumableLogWatch.parseTimestamp(bytes("2017-10-26 08:15:30Z"), 0, 20));
+        assertEquals(-1, ResumableLogWatch.parseTimestamp(bytes("2017-10-26T08:15:30.5"), 0, 21));
+
+        assertEquals("2017-10-26T08:15:30Z",
+                     ResumableLogWatch.formatSinceTime(TimeUnit.SECONDS.toNanos(1509005730) + 999999999));
+    }
+
+    @Test
+    public void backoff() {
+        assertEquals(2000, ResumableLogWatch.getNextBackoff(1000));
+        assertEquals(30000, ResumableLogWatch.getNextBackoff(16000));
+        assertEquals(30000, ResumableLogWatch.getNextBackoff(30000));
+    }
+
+    private Pod createPod(String restartPolicy) {
+        PodBuilder builder = new PodBuilder()
+            .withNewMetadata().withName("pod1").endMetadata()
+            .withNewSpec().withRestartPolicy(restartPolicy).endSpec();
+        if (restartPolicy == null) {
+            return builder.withNewStatus().withPhase("Running")
+                          .addNewContainerStatus().withName("app").withNewState().withNewRunning().endRunning().endState().endContainerStatus()
+                          .endStatus().build();
+        }
+        return builder.withNewStatus().withPhase("Running")
+                      .addNewContainerStatus().withName("app").withNewState().withNewTerminated().withExitCode(0).endTerminated().endState().endContainerStatus()
+                      .endStatus().build();
+    }
+
+    private LineSplitter.LineHandler collect(final List<String> lines) {
+        return new LineSplitter.LineHandler() {
+            @Override
+            public void onLine(byte[] buffer, int offset, int length) {
+                lines.add(new String(buffer, offset, length, StandardCharsets.UTF_8));
+            }
+        };
+    }
+
+    private byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ClasspathIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void jarsAndDirectories() throws IOException {
+        File classes = folder.newFolder("classes");
+        File jar = folder.newFile("dep.jar");
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(jar))) {
+            zip.putNextEntry(new ZipEntry("org/apache/camel/CamelContext.class"));
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+            zip.closeEntry();
+        }
+
+        ClasspathIndex index = new ClasspathIndex(Arrays.asList(classes.getPath(), jar.getPath(),
+                                                                new File(folder.getRoot(), "missing.jar").getPath()));
+        assertTrue(index.hasClass("org.apache.camel.CamelContext"));
+        assertFalse(index.hasClass("org.example.App"));
+
+        // Classes compiled after indexing are found, too
+        File appClass = new File(classes, "org/example/App.class");
+        assertTrue(appClass.getParentFile().mkdirs());
+        assertTrue(appClass.createNewFile());
+        assertTrue(index.hasClass("org.example.App"));
+
+        assertEquals(3, index.getUrls().size());
+    }
+}
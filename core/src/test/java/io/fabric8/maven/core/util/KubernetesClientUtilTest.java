@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import io.fabric8.kubernetes.api.model.ConfigMap;
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.Service;
+import io.fabric8.kubernetes.api.model.ServiceBuilder;
+import io.fabric8.kubernetes.api.model.ServiceListBuilder;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.server.mock.KubernetesMockServer;
+import io.fabric8.maven.docker.util.Logger;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import mockit.Mocked;
+import mockit.Verifications;
+
+import static org.junit.Assert.assertEquals;
+
+public class KubernetesClientUtilTest {
+
+    @Mocked
+    private Logger log;
+
+    private KubernetesMockServer server;
+
+    @Before
+    public void setUp() {
+        server = new KubernetesMockServer(false);
+        server.init();
+    }
+
+    @After
+    public void tearDown() {
+        server.destroy();
+    }
+
+    @Test
+    public void deleteInReverseTierOrder() throws Exception {
+        ConfigMap configMap = new ConfigMapBuilder().withNewMetadata().withName("config").endMetadata().build();
+        Service service = new ServiceBuilder().withNewMetadata().withName("svc").endMetadata().build();
+        server.expect().delete().withPath("/api/v1/namespaces/test/services/svc").andReturn(200, service).once();
+        server.expect().delete().withPath("/api/v1/namespaces/test/configmaps/config").andReturn(200, configMap).once();
+
+        // Config maps are applied before services, so they are deleted after them
+        Set<HasMetadata> entities = new LinkedHashSet<>();
+        entities.add(configMap);
+        entities.add(service);
+        KubernetesClient client = server.createClient();
+        KubernetesClientUtil.deleteEntities(client, "test", entities, "-s2i", 2, 0, log);
+
+        List<String> deleted = new ArrayList<>();
+        for (int i = server.getRequestCount(); i > 0; i--) {
+            RecordedRequest request = server.takeRequest();
+            if ("DELETE".equals(request.getMethod())) {
+                deleted.add(request.getPath());
+            }
+        }
+        assertEquals(Arrays.asList("/api/v1/namespaces/test/services/svc",
+                                   "/api/v1/namespaces/test/configmaps/config"), deleted);
+    }
+
+    @Test
+    public void skipWaitingAfterDeadline() throws Exception {
+        ConfigMap configMap = new ConfigMapBuilder().withNewMetadata().withName("config").endMetadata().build();
+        Service service = new ServiceBuilder().withNewMetadata().withName("svc").endMetadata().build();
+        server.expect().delete().withPath("/api/v1/namespaces/test/services/svc").andReturn(200, service).once();
+        server.expect().delete().withPath("/api/v1/namespaces/test/configmaps/config").andReturn(200, configMap).once();
+        // The service never disappears
+        server.expect().get().withPath("/api/v1/namespaces/test/services/svc").andReturn(200, service).always();
+        server.expect().get().withPath("/api/v1/namespaces/test/services")
+              .andReturn(200, new ServiceListBuilder().addToItems(service).withNewMetadata().withResourceVersion("1").endMetadata().build())
+              .always();
+        server.expect().get().withPath("/api/v1/namespaces/test/services?fieldSelector=metadata.name%3Dsvc&resourceVersion=1&watch=true")
+              .andUpgradeToWebSocket().open().done().always();
+
+        Set<HasMetadata> entities = new LinkedHashSet<>();
+        entities.add(configMap);
+        entities.add(service);
+        KubernetesClient client = server.createClient();
+        KubernetesClientUtil.deleteEntities(client, "test", entities, "-s2i", 2, 1, log);
+
+        // The config map is still deleted, but not waited for anymore
+        List<String> configMapRequests = new ArrayList<>();
+        for (int i = server.getRequestCount(); i > 0; i--) {
+            RecordedRequest request = server.takeRequest();
+            if (request.getPath().contains("configmaps")) {
+                configMapRequests.add(request.getMethod() + " " + request.getPath());
+            }
+        }
+        assertEquals(Arrays.asList("DELETE /api/v1/namespaces/test/configmaps/config"), configMapRequests);
+
+        new Verifications() {{
+            log.warn("Timeout while waiting for the deletion of %s", (Object[]) any); times = 1;
+        }};
+    }
+}
@@ -21,10 +21,19 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
 
+import io.fabric8.kubernetes.api.model.ConfigMapBuilder;
 import io.fabric8.kubernetes.api.model.HasMetadata;
 import io.fabric8.kubernetes.api.model.KubernetesList;
 import io.fabric8.kubernetes.api.model.KubernetesListBuilder;
+import io.fabric8.kubernetes.api.model.NamespaceBuilder;
+import io.fabric8.kubernetes.api.model.SecretBuilder;
+import io.fabric8.kubernetes.api.model.ServiceBuilder;
+import io.fabric8.kubernetes.api.model.extensions.DeploymentBuilder;
+import io.fabric8.utils.Files;
 
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -34,6 +43,9 @@ import static io.fabric8.maven.core.util.KubernetesResourceUtil.DEFAULT_RESOURCE
 import static io.fabric8.maven.core.util.KubernetesResourceUtil.JOB_VERSION;
 import static io.fabric8.maven.core.util.KubernetesResourceUtil.getResource;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -159,5 +171,141 @@ public class KubernetesResourceUtilTest {
             assertEquals("v2",item.getApiVersion());
         }
     }
-}
 
+    @Test
+    public void readFragmentsInParallelKeepsOrder() throws IOException {
+        File[] files = new File[] {
+            new File(fabric8Dir, "simple-rc.yaml"),
+            new File(fabric8Dir, "named-svc.yaml"),
+            new File(fabric8Dir, "job.yml"),
+            new File(fabric8Dir, "svc.yml"),
+            new File(fabric8Dir, "simple-rc.json")
+        };
+        KubernetesList sequential =
+            KubernetesResourceUtil.readResourceFragmentsFrom(DEFAULT_RESOURCE_VERSIONING, "app", files).build();
+        KubernetesList parallel =
+            KubernetesResourceUtil.readResourceFragmentsFrom(DEFAULT_RESOURCE_VERSIONING, "app", files, 4).build();
+        assertEquals(files.length, parallel.getItems().size());
+        assertEquals(sequential.getItems(), parallel.getItems());
+    }
+
+    @Test
+    public void readFragmentsInParallelWithError() throws IOException {
+        File[] files = new File[] {
+            new File(fabric8Dir, "simple-rc.yaml"),
+            new File(fabric8Dir, "simple-bla.yaml")
+        };
+        try {
+            KubernetesResourceUtil.readResourceFragmentsFrom(DEFAULT_RESOURCE_VERSIONING, "app", files, 2);
+            fail();
+        } catch (IllegalArgumentException exp) {
+            assertTrue(exp.getMessage().contains("bla"));
+        }
+    }
+
+    @Test
+    public void writeStreamingList() throws IOException {
+        KubernetesList list = KubernetesResourceUtil.readResourceFragmentsFrom(
+            DEFAULT_RESOURCE_VERSIONING, "pong", new File(fabric8Dir, "read-dir").listFiles()).build();
+        File target = File.createTempFile("kubernetes", ".yml");
+        try {
+            KubernetesResourceUtil.writeResourceFile(list, target, ResourceFileType.yaml);
+            assertEquals(KubernetesResourceUtil.toYaml(list), Files.toString(target));
+
+            KubernetesResourceUtil.writeResourceFile(list, target, ResourceFileType.yaml, true);
+            String content = Files.toString(target);
+            assertFalse(content.contains("items"));
+            assertEquals(2, content.split("(?m)^---").length - 1);
+        } finally {
+            target.delete();
+        }
+    }
+
+    @Test
+    public void loadResourcesFromListAndMultiDocument() throws IOException {
+        KubernetesList list = KubernetesResourceUtil.readResourceFragmentsFrom(
+            DEFAULT_RESOURCE_VERSIONING, "pong", new File(fabric8Dir, "read-dir").listFiles()).build();
+        File target = File.createTempFile("kubernetes", ".yml");
+        try {
+            for (boolean multiDocument : new boolean[] { false, true }) {
+                KubernetesResourceUtil.writeResourceFile(list, target, ResourceFileType.yaml, multiDocument);
+                Set<HasMetadata> entities = KubernetesResourceUtil.loadResources(target);
+                assertEquals(2, entities.size());
+                // Services are sorted first
+                assertEquals("Service", entities.iterator().next().getKind());
+            }
+        } finally {
+            target.delete();
+        }
+    }
+
+    @Test
+    public void streamResourcesInFileOrder() throws IOException {
+        KubernetesList list = KubernetesResourceUtil.readResourceFragmentsFrom(
+            DEFAULT_RESOURCE_VERSIONING, "pong", new File[] {
+                new File(fabric8Dir, "simple-rc.yaml"),
+                new File(fabric8Dir, "named-svc.yaml"),
+                new File(fabric8Dir, "job.yml")
+            }).build();
+        File target = File.createTempFile("kubernetes", ".json");
+        try {
+            KubernetesResourceUtil.writeResourceFile(list, target, ResourceFileType.json);
+            try (ManifestReader reader = KubernetesResourceUtil.streamResources(target)) {
+                for (HasMetadata item : list.getItems()) {
+                    assertEquals(item.getKind(), reader.read().getKind());
+                }
+                assertNull(reader.read());
+                assertEquals(1, reader.getDocumentCount());
+            }
+        } finally {
+            target.delete();
+        }
+    }
+
+    @Test
+    public void streamSingleResource() throws IOException {
+        try (ManifestReader reader = KubernetesResourceUtil.streamResources(new File(fabric8Dir, "contains_kind.yml"))) {
+            assertTrue(reader.hasNext());
+            assertEquals("ReplicationController", reader.next().getKind());
+            assertFalse(reader.hasNext());
+        }
+    }
+
+    @Test
+    public void groupByApplyTier() {
+        List<HasMetadata> entities = Arrays.<HasMetadata>asList(
+            new DeploymentBuilder().withNewMetadata().withName("app").endMetadata().build(),
+            new ServiceBuilder().withNewMetadata().withName("svc").endMetadata().build(),
+            new ConfigMapBuilder().withNewMetadata().withName("config").endMetadata().build(),
+            new NamespaceBuilder().withNewMetadata().withName("ns").endMetadata().build(),
+            new SecretBuilder().withNewMetadata().withName("secret").endMetadata().build());
+        List<List<HasMetadata>> tiers = KubernetesResourceUtil.groupByApplyTier(entities);
+        assertEquals(4, tiers.size());
+        assertEquals("ns", tiers.get(0).get(0).getMetadata().getName());
+        // Order within a tier is kept
+        assertEquals("config", tiers.get(1).get(0).getMetadata().getName());
+        assertEquals("secret", tiers.get(1).get(1).getMetadata().getName());
+        assertEquals("svc", tiers.get(2).get(0).getMetadata().getName());
+        assertEquals("app", tiers.get(3).get(0).getMetadata().getName());
+    }
+
+    @Test
+    public void contentHash() throws IOException {
+        HasMetadata first = new ConfigMapBuilder()
+            .withNewMetadata().withName("config").addToLabels("a", "1").addToLabels("b", "2").endMetadata()
+            .addToData("key", "value")
+            .build();
+        HasMetadata second = new ConfigMapBuilder()
+            .withNewMetadata().withName("config").addToLabels("b", "2").addToLabels("a", "1")
+                .addToAnnotations(Constants.RESOURCE_CONTENT_HASH_ANNOTATION, "old").withResourceVersion("42").endMetadata()
+            .addToData("key", "value")
+            .build();
+        HasMetadata changed = new ConfigMapBuilder()
+            .withNewMetadata().withName("config").addToLabels("a", "1").addToLabels("b", "2").endMetadata()
+            .addToData("key", "other")
+            .build();
+        String hash = KubernetesResourceUtil.calculateContentHash(first);
+        assertEquals(hash, KubernetesResourceUtil.calculateContentHash(second));
+        assertNotEquals(hash, KubernetesResourceUtil.calculateContentHash(changed));
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class LineSplitterTest {
+
+    @Test
+    public void split() throws IOException {
+        assertEquals(Arrays.asList("first", "", "second", "last"),
+                     split(new LineSplitter(), "first\n\nsecond\r\nlast"));
+        assertEquals(Arrays.asList("single"), split(new LineSplitter(), "single\n"));
+        assertEquals(0, split(new LineSplitter(), "").size());
+    }
+
+    @Test
+    public void growBufferForLongLines() throws IOException {
+        assertEquals(Arrays.asList("0123456789", "abc"), split(new LineSplitter(4, 16), "0123456789\nabc\n"));
+    }
+
+    @Test
+    public void splitTooLongLines() throws IOException {
+        assertEquals(Arrays.asList("0123", "4567", "89", "abc"), split(new LineSplitter(2, 4), "0123456789\nabc"));
+    }
+
+    @Test
+    public void reuse() throws IOException {
+        LineSplitter splitter = new LineSplitter(4, 16);
+        assertEquals(Arrays.asList("0123456789"), split(splitter, "0123456789"));
+        assertEquals(Arrays.asList("a", "b"), split(splitter, "a\nb\n"));
+    }
+
+    private List<String> split(LineSplitter splitter, String text) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        splitter.split(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), new LineSplitter.LineHandler() {
+            @Override
+            public void onLine(byte[] buffer, int offset, int length) {
+                lines.add(new String(buffer, offset, length, StandardCharsets.UTF_8));
+            }
+        });
+        return lines;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @since 17/10/26
+ */
+public class MainClassScannerTest {
+
+    private static final int PUBLIC_STATIC = 0x0009;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void mainMethod() throws IOException {
+        assertTrue(MainClassScanner.hasMainMethod(write(createClass(PUBLIC_STATIC))));
+        assertFalse(MainClassScanner.hasMainMethod(write(createClass(0x0001))));
+    }
+
+    @Test
+    public void longAndDoubleTakeTwoEntries() throws IOException {
+        // The names of the main method are only found at the right index when each long and double
+        // constant counts twice
+        assertTrue(MainClassScanner.hasMainMethod(write(createClass(PUBLIC_STATIC, 5, 6))));
+        assertTrue(MainClassScanner.hasMainMethod(write(createClass(PUBLIC_STATIC, 6, 5))));
+    }
+
+    @Test
+    public void invalidMagic() throws IOException {
+        byte[] data = createClass(PUBLIC_STATIC);
+        data[0] = 0;
+        assertFalse(MainClassScanner.hasMainMethod(write(data)));
+    }
+
+    @Test
+    public void invalidConstantPoolTag() throws IOException {
+        byte[] data = createClass(PUBLIC_STATIC);
+        // First tag after magic, version and pool count
+        data[10] = 42;
+        try {
+            MainClassScanner.hasMainMethod(write(data));
+            fail("Invalid tag not detected");
+        } catch (IOException exp) {
+            assertTrue(exp.getMessage().contains("42"));
+        }
+    }
+
+    @Test
+    public void truncatedClass() throws IOException {
+        byte[] data = createClass(PUBLIC_STATIC);
+        // The main method is found before its attributes and the class attributes (2 bytes each) are read
+        for (int length = 0; length < data.length - 4; length++) {
+            try {
+                MainClassScanner.hasMainMethod(write(Arrays.copyOf(data, length)));
+                fail("Truncation at " + length + " bytes not detected");
+            } catch (IOException exp) {
+                // expected
+            }
+        }
+    }
+
+    // ===================================================================================
+
+    // Class with a main method with the given access flags, preceded by long or double constants (tags 5 and 6)
+    private byte[] createClass(int mainAccess, int ... wideTags) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0xCAFEBABE);
+        out.writeShort(0);
+        out.writeShort(51);
+
+        // Constant pool
+        out.writeShort(1 + 2 * wideTags.length + 2);
+        for (int tag : wideTags) {
+            out.writeByte(tag);
+            out.writeLong(Long.MAX_VALUE);
+        }
+        int mainNameIndex = 1 + 2 * wideTags.length;
+        out.writeByte(1);
+        out.writeUTF("main");
+        out.writeByte(1);
+        out.writeUTF("([Ljava/lang/String;)V");
+
+        // access flags, this class, super class, interfaces, fields
+        out.writeShort(PUBLIC_STATIC);
+        out.writeShort(0);
+        out.writeShort(0);
+        out.writeShort(0);
+        out.writeShort(0);
+
+        // Methods
+        out.writeShort(1);
+        out.writeShort(mainAccess);
+        out.writeShort(mainNameIndex);
+        out.writeShort(mainNameIndex + 1);
+        out.writeShort(0);
+
+        // Class attributes
+        out.writeShort(0);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    private File write(byte[] data) throws IOException {
+        File file = folder.newFile();
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(data);
+        }
+        return file;
+    }
+}
@@ -16,11 +16,22 @@
 
 package io.fabric8.maven.core.util;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
 import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
+import io.fabric8.maven.core.config.Named;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import static org.junit.Assert.*;
 
@@ -30,6 +41,9 @@ import static org.junit.Assert.*;
  */
 public class PluginServiceFactoryTest {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private class TestContext {}
     private PluginServiceFactory<TestContext> pluginServiceFactory;
 
@@ -66,10 +80,79 @@ public class PluginServiceFactoryTest {
         String bla = services.get(0);
     }
 
+    @Test
+    public void descriptorIndex() throws IOException {
+        File jar = folder.newFile("services.jar");
+        writeDescriptorJar(jar, PluginServiceFactoryTest.class.getName() + "$Test1");
+        long lastModified = jar.lastModified();
+
+        assertEquals("one", createIndexedService(jar).getName());
+
+        // Same class path, so the indexed descriptor is used
+        writeDescriptorJar(jar, PluginServiceFactoryTest.class.getName() + "$Test2");
+        assertTrue(jar.setLastModified(lastModified));
+        assertEquals("one", createIndexedService(jar).getName());
+
+        // Changed jar is picked up
+        assertTrue(jar.setLastModified(lastModified + 10000));
+        assertEquals("two", createIndexedService(jar).getName());
+
+        PluginServiceFactory.clearDescriptorIndex();
+    }
+
+    @Test
+    public void lazyServiceHandles() {
+        NamedTest1.created = 0;
+        List<PluginServiceFactory.ServiceHandle<NamedTest>> handles =
+            pluginServiceFactory.createServiceHandles("service/named-services");
+        assertEquals(3, handles.size());
+        assertEquals("one", handles.get(0).getName());
+        assertEquals("two", handles.get(1).getName());
+        assertEquals(0, NamedTest1.created);
+        assertFalse(handles.get(1).isCreated());
+
+        NamedTest service = handles.get(0).get();
+        assertSame(service, handles.get(0).get());
+        assertEquals(1, NamedTest1.created);
+        assertFalse(handles.get(1).isCreated());
+
+        try {
+            handles.get(2).get();
+            fail();
+        } catch (IllegalStateException exp) {
+            assertTrue(exp.getMessage().contains("wrong"));
+        }
+    }
+
+    private TestService createIndexedService(File jar) throws IOException {
+        try (URLClassLoader loader = new URLClassLoader(new URL[] { jar.toURI().toURL() })) {
+            PluginServiceFactory<TestContext> factory = new PluginServiceFactory<>(new TestContext(), loader);
+            List<TestService> services = factory.createServiceObjects("service/indexed-services");
+            assertEquals(1, services.size());
+            return services.get(0);
+        }
+    }
+
+    private void writeDescriptorJar(File jar, String content) throws IOException {
+        try (ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(jar))) {
+            zip.putNextEntry(new ZipEntry("service/indexed-services"));
+            zip.write(content.getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+    }
+
     interface TestService { String getName(); }
     public static class Test1 implements TestService { public Test1(TestContext ctx) { } public String getName() { return "one"; } }
     public static class Test2 implements TestService { public Test2(TestContext ctx) { } public String getName() { return "two"; } }
     public static class Test3 implements TestService { public Test3(TestContext ctx) { } public String getName() { return "three"; } }
     public static class Test4 implements TestService { public Test4(TestContext ctx) { } public String getName() { return "four"; } }
     public static class Test5 implements TestService { public Test5(TestContext ctx) { } public String getName() { return "five"; } }
+
+    interface NamedTest extends Named { }
+    public static class NamedTest1 implements NamedTest {
+        static int created;
+        public NamedTest1(TestContext ctx) { created++; }
+        public String getName() { return "one"; }
+    }
+    public static class NamedTest2 implements NamedTest { public NamedTest2(TestContext ctx) { } public String getName() { return "two"; } }
 }
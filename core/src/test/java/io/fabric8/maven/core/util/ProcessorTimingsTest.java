@@ -0,0 +1,98 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ProcessorTimingsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void accumulateAndSort() throws InterruptedException {
+        ProcessorTimings timings = new ProcessorTimings();
+        for (int i = 0; i < 2; i++) {
+            ProcessorTimings.Measurement m = timings.start("enricher", "fmp-fast", "adapt");
+            m.stop();
+        }
+        ProcessorTimings.Measurement m = timings.start("enricher", "fmp-slow", "adapt");
+        Thread.sleep(20);
+        m.stop();
+
+        List<ProcessorTimings.Entry> entries = timings.getEntries();
+        assertEquals(2, entries.size());
+        assertEquals("fmp-slow", entries.get(0).getName());
+        assertEquals(1, entries.get(0).getCalls());
+        assertTrue(entries.get(0).getTimeNanos() >= 20 * 1000 * 1000);
+        assertEquals("fmp-fast", entries.get(1).getName());
+        assertEquals(2, entries.get(1).getCalls());
+    }
+
+    @Test
+    public void allocatedBytes() {
+        // Only JVMs with the extended ThreadMXBean provide per thread allocation counters
+        try {
+            Class.forName("com.sun.management.ThreadMXBean");
+        } catch (ClassNotFoundException e) {
+            Assume.assumeNoException(e);
+        }
+        ProcessorTimings timings = new ProcessorTimings();
+        ProcessorTimings.Measurement m = timings.start("enricher", "fmp-alloc", "adapt");
+        byte[][] garbage = new byte[16][];
+        for (int i = 0; i < garbage.length; i++) {
+            garbage[i] = new byte[1024];
+        }
+        m.stop();
+        assertTrue(timings.getEntries().get(0).getAllocatedBytes() >= garbage.length * 1024);
+    }
+
+    @Test
+    public void disabled() {
+        ProcessorTimings timings = ProcessorTimings.disabled();
+        assertFalse(timings.isEnabled());
+        timings.start("generator", "spring-boot", "customize").stop();
+        assertTrue(timings.getEntries().isEmpty());
+    }
+
+    @Test
+    public void writeReport() throws IOException {
+        ProcessorTimings timings = new ProcessorTimings();
+        timings.start("generator", "spring-boot", "isApplicable").stop();
+        File report = new File(folder.getRoot(), "fabric8/" + ProcessorTimings.REPORT_FILE);
+        timings.writeReport(report);
+
+        List<Map<String, Object>> json = new ObjectMapper().readValue(report, List.class);
+        assertEquals(1, json.size());
+        assertEquals("generator", json.get(0).get("type"));
+        assertEquals("spring-boot", json.get(0).get("name"));
+        assertEquals("isApplicable", json.get(0).get("phase"));
+        assertEquals(1, json.get(0).get("calls"));
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.util;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import io.fabric8.maven.core.config.ProcessorConfig;
+import io.fabric8.utils.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ResourceCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void fingerprintIsStable() throws IOException {
+        File dir = folder.newFolder("fabric8");
+        Files.writeToFile(new File(dir, "deployment.yml"), "spec: {}", Charset.defaultCharset());
+
+        assertEquals(fingerprint(dir, "1.0"), fingerprint(dir, "1.0"));
+        assertNotEquals(fingerprint(dir, "1.0"), fingerprint(dir, "1.1"));
+    }
+
+    @Test
+    public void fingerprintChangesWithFragment() throws IOException {
+        File dir = folder.newFolder("fabric8");
+        File fragment = new File(dir, "deployment.yml");
+        Files.writeToFile(fragment, "spec: {}", Charset.defaultCharset());
+        String before = fingerprint(dir, "1.0");
+        Files.writeToFile(fragment, "spec: { replicas: 2 }", Charset.defaultCharset());
+        assertNotEquals(before, fingerprint(dir, "1.0"));
+    }
+
+    @Test
+    public void storeAndLookup() throws IOException {
+        File workDir = folder.newFolder("work");
+        File manifest = folder.newFile("kubernetes.yml");
+        ResourceCache cache = new ResourceCache(workDir);
+        assertNull(cache.lookup("abc"));
+
+        cache.store("abc", Arrays.asList(new ResourceCache.Artifact("yml", "kubernetes", manifest)));
+        List<ResourceCache.Artifact> artifacts = cache.lookup("abc");
+        assertEquals(1, artifacts.size());
+        assertEquals("yml", artifacts.get(0).getType());
+        assertEquals("kubernetes", artifacts.get(0).getClassifier());
+        assertEquals(manifest.getAbsoluteFile(), artifacts.get(0).getFile());
+        assertNull(cache.lookup("other"));
+
+        manifest.delete();
+        assertNull(cache.lookup("abc"));
+
+        cache.invalidate();
+        assertNull(cache.lookup("abc"));
+    }
+
+    @Test
+    public void fingerprintFileStamps() throws IOException {
+        File dir = folder.newFolder("classes");
+        File file = new File(dir, "application.properties");
+        Files.writeToFile(file, "a=1", Charset.defaultCharset());
+        assertTrue(file.setLastModified(100000L));
+
+        String hash = stamps(dir);
+        assertEquals(hash, stamps(dir));
+
+        assertTrue(file.setLastModified(200000L));
+        assertNotEquals(hash, stamps(dir));
+    }
+
+    @Test
+    public void fingerprintFilteredFileStamps() throws IOException {
+        File dir = folder.newFolder("classes");
+        File properties = new File(dir, "application.properties");
+        Files.writeToFile(properties, "a=1", Charset.defaultCharset());
+        File clazz = new File(dir, "Main.class");
+        Files.writeToFile(clazz, "", Charset.defaultCharset());
+        FileFilter filter = new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return !file.getName().endsWith(".class");
+            }
+        };
+
+        String hash = new ResourceCache.Fingerprint().addFileStamps("dir", dir, filter).getHash();
+        Files.writeToFile(clazz, "changed", Charset.defaultCharset());
+        assertEquals(hash, new ResourceCache.Fingerprint().addFileStamps("dir", dir, filter).getHash());
+
+        Files.writeToFile(properties, "a=22", Charset.defaultCharset());
+        assertNotEquals(hash, new ResourceCache.Fingerprint().addFileStamps("dir", dir, filter).getHash());
+    }
+
+    private String stamps(File dir) {
+        return new ResourceCache.Fingerprint().addFileStamps("dir", dir).getHash();
+    }
+
+    private String fingerprint(File dir, String version) throws IOException {
+        ProcessorConfig config = new ProcessorConfig(Arrays.asList("fmp-name"), null, null);
+        return new ResourceCache.Fingerprint()
+            .add("version", version)
+            .add("config", config)
+            .addProperties("props", Collections.singletonMap("key", "value"))
+            .addFile("dir", dir)
+            .getHash();
+    }
+}
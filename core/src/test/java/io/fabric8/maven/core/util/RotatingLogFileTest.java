@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.core.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RotatingLogFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void appendAcrossReopen() throws IOException {
+        File file = new File(folder.getRoot(), "logs/pod_app.log");
+        try (RotatingLogFile log = new RotatingLogFile(file, 0, 0)) {
+            write(log, "first");
+        }
+        try (RotatingLogFile log = new RotatingLogFile(file, 0, 0)) {
+            write(log, "second");
+        }
+        assertEquals(Arrays.asList("first", "second"), read(file));
+    }
+
+    @Test
+    public void rotate() throws IOException {
+        File file = new File(folder.getRoot(), "pod_app.log");
+        // Two lines of "line-N\n" fit into 14 bytes
+        try (RotatingLogFile log = new RotatingLogFile(file, 14, 2)) {
+            for (int i = 1; i <= 8; i++) {
+                write(log, "line-" + i);
+            }
+        }
+        assertEquals(Arrays.asList("line-7", "line-8"), read(file));
+        assertEquals(Arrays.asList("line-5", "line-6"), read(new File(file.getPath() + ".1")));
+        assertEquals(Arrays.asList("line-3", "line-4"), read(new File(file.getPath() + ".2")));
+        assertFalse(new File(file.getPath() + ".3").exists());
+    }
+
+    @Test
+    public void flushBufferedLines() throws IOException {
+        File file = new File(folder.getRoot(), "pod_app.log");
+        try (RotatingLogFile log = new RotatingLogFile(file, 0, 0)) {
+            write(log, "buffered");
+            log.flush();
+            assertTrue(file.length() > 0);
+        }
+    }
+
+    private void write(RotatingLogFile log, String line) throws IOException {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        log.writeLine(bytes, 0, bytes.length);
+    }
+
+    private List<String> read(File file) throws IOException {
+        return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+    }
+}
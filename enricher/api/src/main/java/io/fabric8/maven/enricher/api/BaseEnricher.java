@@ -22,6 +22,7 @@ import io.fabric8.maven.core.util.Configs;
 import io.fabric8.maven.core.util.PrefixedLogger;
 import io.fabric8.maven.docker.config.ImageConfiguration;
 import io.fabric8.maven.docker.util.Logger;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.project.MavenProject;
 
 import java.util.List;
@@ -78,6 +79,13 @@ public abstract class BaseEnricher implements Enricher {
         return null;
     }
 
+    protected MavenSession getSession() {
+        if (buildContext != null) {
+            return buildContext.getSession();
+        }
+        return null;
+    }
+
     protected Logger getLog() {
         return log;
     }
@@ -83,6 +83,10 @@ public class EnricherContext {
         return useProjectClasspath;
     }
 
+    public MavenSession getSession() {
+        return session;
+    }
+
     public Settings getSettings() {
         return session != null ? session.getSettings() : null;
     }
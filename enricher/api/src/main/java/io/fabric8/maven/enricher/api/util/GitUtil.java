@@ -18,9 +18,14 @@ package io.fabric8.maven.enricher.api.util;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import io.fabric8.maven.core.util.MavenUtil;
 import io.fabric8.utils.GitHelpers;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.project.MavenProject;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
@@ -34,8 +39,69 @@ import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
  */
 public class GitUtil {
 
+    // Git information per session and git directory, so that a repository is opened only once per build
+    private static final Map<MavenSession, Map<File, GitInfo>> GIT_INFO_CACHE =
+        Collections.synchronizedMap(new WeakHashMap<MavenSession, Map<File, GitInfo>>());
 
     public static Repository getGitRepository(MavenProject project) throws IOException {
+        File gitFolder = findGitFolder(project);
+        if (gitFolder == null) {
+            // No git repository found
+            return null;
+        }
+        return openRepository(gitFolder);
+    }
+
+    /**
+     * Get branch and commit id of the Git repository the project is contained in. The information is
+     * looked up only once per session and Git directory and is reused afterwards.
+     *
+     * @param project project to lookup
+     * @param session current session. If <code>null</code>, no caching takes place
+     * @return git information or <code>null</code> if the project is not within a Git repository
+     */
+    public static GitInfo getGitInfo(MavenProject project, MavenSession session) throws IOException, GitAPIException {
+        File gitFolder = findGitFolder(project);
+        if (gitFolder == null) {
+            return null;
+        }
+        if (session == null) {
+            return readGitInfo(gitFolder);
+        }
+        Map<File, GitInfo> sessionCache;
+        synchronized (GIT_INFO_CACHE) {
+            sessionCache = GIT_INFO_CACHE.get(session);
+            if (sessionCache == null) {
+                sessionCache = new HashMap<>();
+                GIT_INFO_CACHE.put(session, sessionCache);
+            }
+        }
+        File key = gitFolder.getCanonicalFile();
+        synchronized (sessionCache) {
+            GitInfo info = sessionCache.get(key);
+            if (info == null) {
+                info = readGitInfo(gitFolder);
+                sessionCache.put(key, info);
+            }
+            return info;
+        }
+    }
+
+    private static GitInfo readGitInfo(File gitFolder) throws IOException, GitAPIException {
+        try (Repository repository = openRepository(gitFolder)) {
+            return new GitInfo(repository.getBranch(), getGitCommitId(repository));
+        }
+    }
+
+    private static Repository openRepository(File gitFolder) throws IOException {
+        FileRepositoryBuilder builder = new FileRepositoryBuilder();
+        return builder
+            .readEnvironment()
+            .setGitDir(gitFolder)
+            .build();
+    }
+
+    private static File findGitFolder(MavenProject project) {
         MavenProject rootProject = MavenUtil.getRootProject(project);
         File baseDir = rootProject.getBasedir();
         if (baseDir == null) {
@@ -45,17 +111,7 @@ public class GitUtil {
             // TODO: Why is this check needed ?
             baseDir = new File(System.getProperty("basedir", "."));
         }
-        File gitFolder = GitHelpers.findGitFolder(baseDir);
-        if (gitFolder == null) {
-            // No git repository found
-            return null;
-        }
-        FileRepositoryBuilder builder = new FileRepositoryBuilder();
-        Repository repository = builder
-            .readEnvironment()
-            .setGitDir(gitFolder)
-            .build();
-        return repository;
+        return GitHelpers.findGitFolder(baseDir);
     }
 
     public static String getGitCommitId(Repository repository) throws GitAPIException {
@@ -71,4 +127,26 @@ public class GitUtil {
         }
         return null;
     }
+
+    /**
+     * Branch and commit id of a Git repository
+     */
+    public static class GitInfo {
+
+        private final String branch;
+        private final String commitId;
+
+        public GitInfo(String branch, String commitId) {
+            this.branch = branch;
+            this.commitId = commitId;
+        }
+
+        public String getBranch() {
+            return branch;
+        }
+
+        public String getCommitId() {
+            return commitId;
+        }
+    }
 }
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.enricher.api.util;
+
+import java.io.File;
+
+import mockit.Mocked;
+import mockit.integration.junit4.JMockit;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+@RunWith(JMockit.class)
+public class GitUtilTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mocked
+    MavenSession session;
+
+    @Mocked
+    MavenSession otherSession;
+
+    @Test
+    public void gitInfoIsCachedPerSession() throws Exception {
+        File repoDir = folder.newFolder("repo");
+        MavenProject project = new MavenProject();
+        project.setFile(new File(repoDir, "pom.xml"));
+
+        try (Git git = Git.init().setDirectory(repoDir).call()) {
+            RevCommit first = git.commit().setMessage("first").call();
+
+            GitUtil.GitInfo info = GitUtil.getGitInfo(project, session);
+            assertEquals("master", info.getBranch());
+            assertEquals(first.getName(), info.getCommitId());
+
+            RevCommit second = git.commit().setMessage("second").call();
+            assertSame(info, GitUtil.getGitInfo(project, session));
+
+            GitUtil.GitInfo otherInfo = GitUtil.getGitInfo(project, otherSession);
+            assertNotSame(info, otherInfo);
+            assertEquals(second.getName(), otherInfo.getCommitId());
+            assertEquals(second.getName(), GitUtil.getGitInfo(project, null).getCommitId());
+        }
+    }
+
+    @Test
+    public void noGitRepository() throws Exception {
+        MavenProject project = new MavenProject();
+        project.setFile(new File(folder.newFolder("nogit"), "pom.xml"));
+        assertNull(GitUtil.getGitInfo(project, session));
+    }
+}
@@ -31,7 +31,6 @@ import io.fabric8.maven.enricher.api.Kind;
 import io.fabric8.utils.*;
 import org.apache.maven.project.MavenProject;
 import org.eclipse.jgit.api.errors.GitAPIException;
-import org.eclipse.jgit.lib.Repository;
 
 /**
  * Enricher for adding continous delivery metadata:
@@ -83,10 +82,11 @@ public class CdEnricher extends AbstractLiveEnricher {
             Map<String, String> annotations = new HashMap<>();
             MavenProject rootProject = MavenUtil.getRootProject(getProject());
             String repoName = rootProject.getArtifactId();
-            try (Repository repository = GitUtil.getGitRepository(getProject())) {
+            try {
                 // Git annotations (if git is used as SCM)
-                if (repository != null) {
-                    String gitCommitId = GitUtil.getGitCommitId(repository);
+                GitUtil.GitInfo gitInfo = GitUtil.getGitInfo(getProject(), getSession());
+                if (gitInfo != null) {
+                    String gitCommitId = gitInfo.getCommitId();
                     if (gitCommitId != null) {
                         addGitServiceUrl(annotations, repoName, gitCommitId);
                     } else {
@@ -20,7 +20,6 @@ import io.fabric8.kubernetes.api.Annotations;
 import io.fabric8.maven.enricher.api.util.GitUtil;
 import io.fabric8.maven.enricher.api.*;
 import org.eclipse.jgit.api.errors.GitAPIException;
-import org.eclipse.jgit.lib.Repository;
 
 import java.io.IOException;
 import java.util.HashMap;
@@ -45,20 +44,16 @@ public class GitEnricher extends BaseEnricher {
     @Override
     public Map<String, String> getAnnotations(Kind kind) {
         Map<String, String> annotations = new HashMap<>();
-        Repository repository = null;
         try {
             if (kind.isController() || kind == Kind.SERVICE) {
-                // Git annotations (if git is used as SCM)
-                repository = GitUtil.getGitRepository(getProject());
-                if (repository != null) {
-                    String result;
-                    String branch = repository.getBranch();
-                    if (branch != null) {
-                        annotations.put(Annotations.Builds.GIT_BRANCH, branch);
+                // Git annotations (if git is used as SCM). Looked up only once per build.
+                GitUtil.GitInfo gitInfo = GitUtil.getGitInfo(getProject(), getSession());
+                if (gitInfo != null) {
+                    if (gitInfo.getBranch() != null) {
+                        annotations.put(Annotations.Builds.GIT_BRANCH, gitInfo.getBranch());
                     }
-                    String id = GitUtil.getGitCommitId(repository);
-                    if (id != null) {
-                        annotations.put(Annotations.Builds.GIT_COMMIT, id);
+                    if (gitInfo.getCommitId() != null) {
+                        annotations.put(Annotations.Builds.GIT_COMMIT, gitInfo.getCommitId());
                     }
                 }
             }
@@ -66,15 +61,6 @@ public class GitEnricher extends BaseEnricher {
         } catch (IOException | GitAPIException e) {
             log.error("Cannot extract Git information for adding to annotations: " + e, e);
             return null;
-        } finally {
-            if (repository != null) {
-                try {
-                    repository.close();
-                } catch (Exception e) {
-                    // ignore
-                }
-            }
         }
     }
 }
-
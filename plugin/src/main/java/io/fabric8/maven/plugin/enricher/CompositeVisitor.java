@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016 Red Hat, Inc.
+ *
+ * Red Hat licenses this file to you under the Apache License, version
+ * 2.0 (the "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package io.fabric8.maven.plugin.enricher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.fabric8.kubernetes.api.builder.TypedVisitor;
+
+/**
+ * Visitor which dispatches to multiple typed visitors so that a builder tree is walked only once
+ * for all of them. Every visited node is handed to all visitors accepting the node's type, in the
+ * order in which the visitors were given.
+ *
+ * @since 17/10/26
+ */
+class CompositeVisitor extends TypedVisitor<Object> {
+
+    private final List<TypedVisitor<?>> visitors = new ArrayList<>();
+    private final List<Class<?>> visitorTypes = new ArrayList<>();
+
+    // Visitors to call per concrete node type, looked up lazily
+    private final Map<Class<?>, List<TypedVisitor<?>>> dispatchTable = new HashMap<>();
+
+    CompositeVisitor(TypedVisitor<?>... visitors) {
+        for (TypedVisitor<?> visitor : visitors) {
+            this.visitors.add(visitor);
+            // Type lookup is done via reflection, so do it only once
+            this.visitorTypes.add(visitor.getType());
+        }
+    }
+
+    @Override
+    public Class<Object> getType() {
+        return Object.class;
+    }
+
+    @Override
+    public void visit(Object element) {
+        for (TypedVisitor<?> visitor : getVisitors(element.getClass())) {
+            dispatch(visitor, element);
+        }
+    }
+
+    // Only called with visitors whose type the element is assignable to
+    @SuppressWarnings("unchecked")
+    private static <T> void dispatch(TypedVisitor<T> visitor, Object element) {
+        visitor.visit((T) element);
+    }
+
+    private List<TypedVisitor<?>> getVisitors(Class<?> type) {
+        List<TypedVisitor<?>> ret = dispatchTable.get(type);
+        if (ret == null) {
+            ret = new ArrayList<>();
+            for (int i = 0; i < visitors.size(); i++) {
+                if (visitorTypes.get(i).isAssignableFrom(type)) {
+                    ret.add(visitors.get(i));
+                }
+            }
+            ret = ret.isEmpty() ? Collections.<TypedVisitor<?>>emptyList() : ret;
+            dispatchTable.put(type, ret);
+        }
+        return ret;
+    }
+}
@@ -18,12 +18,14 @@ package io.fabric8.maven.plugin.enricher;
 
 import java.util.*;
 
+import io.fabric8.kubernetes.api.builder.TypedVisitor;
 import io.fabric8.kubernetes.api.model.KubernetesListBuilder;
 import io.fabric8.maven.core.config.MetaDataConfig;
 import io.fabric8.maven.core.config.ProcessorConfig;
 import io.fabric8.maven.core.config.ResourceConfig;
 import io.fabric8.maven.core.util.ClassUtil;
 import io.fabric8.maven.core.util.PluginServiceFactory;
+import io.fabric8.maven.core.util.ProcessorTimings;
 import io.fabric8.maven.docker.util.Logger;
 import io.fabric8.maven.enricher.api.Enricher;
 import io.fabric8.maven.enricher.api.EnricherContext;
@@ -43,19 +45,35 @@ public class EnricherManager {
     private final MetaDataConfig labelConfig;
     private final MetaDataConfig annotationConfig;
 
-    // List of enrichers used for customizing the generated deployment descriptors
-    private List<Enricher> enrichers;
+    // List of enrichers used for customizing the generated deployment descriptors. Enrichers
+    // are created only when they are selected by a configuration.
+    private List<PluginServiceFactory.ServiceHandle<Enricher>> enrichers;
 
     // context used by enrichers
     private final ProcessorConfig defaultEnricherConfig;
 
     private Logger log;
 
+    // Timings of the enricher calls
+    private final ProcessorTimings timings;
+
     // List of visitors used to enrich with labels
     private final MetadataVisitor<?>[] metaDataVisitors;
     private final SelectorVisitor<?>[] selectorVisitorCreators;
 
+    // Dispatches to all label and selector visitors within a single walk
+    private final CompositeVisitor labelAndSelectorVisitor;
+
+    // Enrichers and extracted labels, annotations and selectors per config, cached for a single enrichment run
+    private final Map<ProcessorConfig, List<Enricher>> filteredEnricherCache = new IdentityHashMap<>();
+    private final Map<ProcessorConfig, Map<Extractor, Map<Kind, Map<String, String>>>> extractionCache = new IdentityHashMap<>();
+
     public EnricherManager(ResourceConfig resourceConfig, EnricherContext enricherContext) {
+        this(resourceConfig, enricherContext, ProcessorTimings.disabled());
+    }
+
+    public EnricherManager(ResourceConfig resourceConfig, EnricherContext enricherContext, ProcessorTimings timings) {
+        this.timings = timings;
         PluginServiceFactory<EnricherContext> pluginFactory = new PluginServiceFactory<>(enricherContext);
 
         if (enricherContext.isUseProjectClasspath()) {
@@ -65,7 +83,7 @@ public class EnricherManager {
         this.log = enricherContext.getLog();
         this.defaultEnricherConfig = enricherContext.getConfig();
 
-        this.enrichers = pluginFactory.createServiceObjects("META-INF/fabric8-enricher-default",
+        this.enrichers = pluginFactory.createServiceHandles("META-INF/fabric8-enricher-default",
                                                             "META-INF/fabric8/enricher-default",
                                                             "META-INF/fabric8-enricher",
                                                             "META-INF/fabric8/enricher");
@@ -100,6 +118,11 @@ public class EnricherManager {
             new SelectorVisitor.StatefulSetSpecBuilderVisitor(this),
             new SelectorVisitor.JobSpecBuilderVisitor(this)
         };
+
+        List<TypedVisitor<?>> allVisitors = new ArrayList<>();
+        allVisitors.addAll(Arrays.asList(metaDataVisitors));
+        allVisitors.addAll(Arrays.asList(selectorVisitorCreators));
+        labelAndSelectorVisitor = new CompositeVisitor(allVisitors.toArray(new TypedVisitor<?>[allVisitors.size()]));
     }
 
     public void createDefaultResources(final KubernetesListBuilder builder) {
@@ -108,7 +131,7 @@ public class EnricherManager {
 
     public void createDefaultResources(ProcessorConfig enricherConfig, final KubernetesListBuilder builder) {
         // Add default resources
-        loop(enricherConfig, new Function<Enricher, Void>() {
+        loop(enricherConfig, "addMissingResources", new Function<Enricher, Void>() {
             @Override
             public Void apply(Enricher enricher) {
                 enricher.addMissingResources(builder);
@@ -122,11 +145,8 @@ public class EnricherManager {
     }
 
     public void enrich(ProcessorConfig config, KubernetesListBuilder builder) {
-        // Enrich labels
-        enrichLabels(config, builder);
-
-        // Add missing selectors
-        addMissingSelectors(config, builder);
+        // Enrich labels and add missing selectors
+        enrichLabelsAndSelectors(config, builder);
 
         // Final customization step
         adapt(config, builder);
@@ -144,28 +164,22 @@ public class EnricherManager {
     }
 
     /**
-     * Enrich the given list with labels.
-     *
-     * @param builder the build to enrich with labels
-     */
-    private void enrichLabels(ProcessorConfig config, KubernetesListBuilder builder) {
-        visit(config, builder, metaDataVisitors);
-    }
-
-    /**
-     * Add selector when missing to services and replication controller / replica sets
+     * Enrich the given list with labels and add selectors when missing to services and replication
+     * controller / replica sets. All visitors are applied during a single walk over the builder.
      *
      * @param config processor config to use
-     * @param builder builder to add selectors to.
+     * @param builder the builder to enrich
      */
-    private void addMissingSelectors(ProcessorConfig config, KubernetesListBuilder builder) {
+    private void enrichLabelsAndSelectors(ProcessorConfig config, KubernetesListBuilder builder) {
+        MetadataVisitor.setProcessorConfig(config);
         SelectorVisitor.setProcessorConfig(config);
+        invalidateExtractionCache();
         try {
-            for (SelectorVisitor<?> visitor : selectorVisitorCreators) {
-                builder.accept(visitor);
-            }
+            builder.accept(labelAndSelectorVisitor);
         } finally {
+            invalidateExtractionCache();
             SelectorVisitor.clearProcessorConfig();
+            MetadataVisitor.clearProcessorConfig();
         }
     }
 
@@ -175,7 +189,7 @@ public class EnricherManager {
      * @param builder builder to customize
      */
     private void adapt(final ProcessorConfig enricherConfig, final KubernetesListBuilder builder) {
-        loop(enricherConfig, new Function<Enricher, Void>() {
+        loop(enricherConfig, "adapt", new Function<Enricher, Void>() {
             @Override
             public Void apply(Enricher enricher) {
                 enricher.adapt(builder);
@@ -205,20 +219,64 @@ public class EnricherManager {
     }
 
 
-    private List<Enricher> filterEnrichers(ProcessorConfig config, List<Enricher> enrichers) {
-        return config.prepareProcessors(enrichers, "enricher");
+    /**
+     * Forget all labels, annotations and selectors which have been extracted from the enrichers.
+     * This happens automatically before and after each enrichment run.
+     */
+    public void invalidateExtractionCache() {
+        filteredEnricherCache.clear();
+        extractionCache.clear();
+    }
+
+    private List<Enricher> filterEnrichers(ProcessorConfig config, List<PluginServiceFactory.ServiceHandle<Enricher>> enrichers) {
+        return PluginServiceFactory.getServices(config.prepareProcessors(enrichers, "enricher"));
     }
 
-    private void loop(ProcessorConfig config, Function<Enricher, Void> function) {
+    private List<Enricher> getCachedFilteredEnrichers(ProcessorConfig config) {
+        List<Enricher> ret = filteredEnricherCache.get(config);
+        if (ret == null) {
+            ret = filterEnrichers(config, enrichers);
+            filteredEnricherCache.put(config, ret);
+        }
+        return ret;
+    }
+
+    private void loop(ProcessorConfig config, String phase, Function<Enricher, Void> function) {
         for (Enricher enricher : filterEnrichers(config,enrichers)) {
-            function.apply(enricher);
+            ProcessorTimings.Measurement measurement = timings.start("enricher", enricher.getName(), phase);
+            try {
+                function.apply(enricher);
+            } finally {
+                measurement.stop();
+            }
         }
     }
 
+    // Extracted values are cached per config, extractor and kind. The returned map must not be modified.
     private Map<String, String> extract(ProcessorConfig config, Extractor extractor, Kind kind) {
-        Map <String, String> ret = new HashMap<>();
-        for (Enricher enricher : filterEnrichers(config, enrichers)) {
-            putAllIfNotNull(ret, extractor.extract(enricher, kind));
+        Map<Extractor, Map<Kind, Map<String, String>>> configCache = extractionCache.get(config);
+        if (configCache == null) {
+            configCache = new EnumMap<>(Extractor.class);
+            extractionCache.put(config, configCache);
+        }
+        Map<Kind, Map<String, String>> extractorCache = configCache.get(extractor);
+        if (extractorCache == null) {
+            extractorCache = new EnumMap<>(Kind.class);
+            configCache.put(extractor, extractorCache);
+        }
+        Map<String, String> ret = extractorCache.get(kind);
+        if (ret == null) {
+            Map<String, String> extracted = new HashMap<>();
+            for (Enricher enricher : getCachedFilteredEnrichers(config)) {
+                ProcessorTimings.Measurement measurement = timings.start("enricher", enricher.getName(), extractor.getPhase());
+                try {
+                    putAllIfNotNull(extracted, extractor.extract(enricher, kind));
+                } finally {
+                    measurement.stop();
+                }
+            }
+            ret = Collections.unmodifiableMap(extracted);
+            extractorCache.put(kind, ret);
         }
         return ret;
     }
@@ -227,21 +285,33 @@ public class EnricherManager {
     // ========================================================================================================
     // Simple extractors
     enum Extractor {
-        LABEL_EXTRACTOR {
+        LABEL_EXTRACTOR("labels") {
             public Map<String, String> extract(Enricher enricher, Kind kind) {
                 return enricher.getLabels(kind);
             }
         },
-        ANNOTATION_EXTRACTOR {
+        ANNOTATION_EXTRACTOR("annotations") {
             public Map<String, String> extract(Enricher enricher, Kind kind) {
                 return enricher.getAnnotations(kind);
             }
         },
-        SELECTOR_EXTRACTOR {
+        SELECTOR_EXTRACTOR("selector") {
             public Map<String, String> extract(Enricher enricher, Kind kind) {
                 return enricher.getSelector(kind);
             }
         };
+
+        // Name of the phase used for timings
+        private final String phase;
+
+        Extractor(String phase) {
+            this.phase = phase;
+        }
+
+        String getPhase() {
+            return phase;
+        }
+
         abstract Map<String, String> extract(Enricher enricher, Kind kind);
     }
 
@@ -251,15 +321,4 @@ public class EnricherManager {
             ret.putAll(toPut);
         }
     }
-
-    private void visit(ProcessorConfig config, KubernetesListBuilder builder, MetadataVisitor<?>[] visitors) {
-        MetadataVisitor.setProcessorConfig(config);
-        try {
-            for (MetadataVisitor<?> visitor : visitors) {
-                builder.accept(visitor);
-            }
-        } finally {
-            MetadataVisitor.clearProcessorConfig();
-        }
-    }
 }
@@ -22,6 +22,7 @@ import java.util.List;
 import io.fabric8.maven.core.config.ProcessorConfig;
 import io.fabric8.maven.core.util.ClassUtil;
 import io.fabric8.maven.core.util.PluginServiceFactory;
+import io.fabric8.maven.core.util.ProcessorTimings;
 import io.fabric8.maven.docker.util.Logger;
 import io.fabric8.maven.generator.api.Generator;
 import io.fabric8.maven.generator.api.GeneratorContext;
@@ -38,6 +39,13 @@ public class GeneratorManager {
     public static List<ImageConfiguration> generate(List<ImageConfiguration> imageConfigs,
                                                     GeneratorContext genCtx,
                                                     boolean prePackagePhase) throws MojoExecutionException {
+        return generate(imageConfigs, genCtx, prePackagePhase, ProcessorTimings.disabled());
+    }
+
+    public static List<ImageConfiguration> generate(List<ImageConfiguration> imageConfigs,
+                                                    GeneratorContext genCtx,
+                                                    boolean prePackagePhase,
+                                                    ProcessorTimings timings) throws MojoExecutionException {
 
         List<ImageConfiguration> ret = imageConfigs;
 
@@ -46,22 +54,36 @@ public class GeneratorManager {
             new PluginServiceFactory<GeneratorContext>(genCtx, ClassUtil.createProjectClassLoader(genCtx.getProject(), genCtx.getLogger())) :
             new PluginServiceFactory<GeneratorContext>(genCtx);
 
-        List<Generator> generators =
-            pluginFactory.createServiceObjects("META-INF/fabric8/generator-default",
+        List<PluginServiceFactory.ServiceHandle<Generator>> generators =
+            pluginFactory.createServiceHandles("META-INF/fabric8/generator-default",
                                                "META-INF/fabric8/fabric8-generator-default",
                                                "META-INF/fabric8/generator",
                                                "META-INF/fabric8-generator");
         ProcessorConfig config = genCtx.getConfig();
         Logger log = genCtx.getLogger();
-        List<Generator> usableGenerators = config.prepareProcessors(generators, "generator");
+        List<Generator> usableGenerators = PluginServiceFactory.getServices(config.prepareProcessors(generators, "generator"));
         log.verbose("Generators:");
         for (Generator generator : usableGenerators) {
             log.verbose(" - %s",generator.getName());
-            if (generator.isApplicable(ret)) {
+            if (isApplicable(generator, ret, timings)) {
                 log.info("Running generator %s", generator.getName());
-                ret = generator.customize(ret, prePackagePhase);
+                ProcessorTimings.Measurement measurement = timings.start("generator", generator.getName(), "customize");
+                try {
+                    ret = generator.customize(ret, prePackagePhase);
+                } finally {
+                    measurement.stop();
+                }
             }
         }
         return ret;
     }
+
+    private static boolean isApplicable(Generator generator, List<ImageConfiguration> configs, ProcessorTimings timings) throws MojoExecutionException {
+        ProcessorTimings.Measurement measurement = timings.start("generator", generator.getName(), "isApplicable");
+        try {
+            return generator.isApplicable(configs);
+        } finally {
+            measurement.stop();
+        }
+    }
 }
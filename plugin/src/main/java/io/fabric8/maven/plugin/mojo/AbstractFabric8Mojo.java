@@ -16,9 +16,13 @@
  */
 package io.fabric8.maven.plugin.mojo;
 
+import java.io.File;
+
 import io.fabric8.kubernetes.api.KubernetesHelper;
 import io.fabric8.kubernetes.api.ServiceNames;
 import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.maven.core.access.ClusterAccess;
+import io.fabric8.maven.core.access.KubernetesClientPool;
 import io.fabric8.maven.core.util.GoalFinder;
 import io.fabric8.maven.docker.util.AnsiLogger;
 import io.fabric8.maven.docker.util.Logger;
@@ -59,6 +63,45 @@ public abstract class AbstractFabric8Mojo extends AbstractMojo {
     @Parameter(defaultValue = "${settings}", readonly = true)
     protected Settings settings;
 
+    /**
+     * Time in seconds for which detected cluster capabilities (like whether the cluster is an OpenShift cluster)
+     * are reused by later builds. By default capabilities are only cached during a single build.
+     */
+    @Parameter(property = "fabric8.cluster.capabilityCacheTtl", defaultValue = "0")
+    protected int clusterCapabilityCacheTtl;
+
+    /**
+     * File for storing cluster capabilities across builds
+     */
+    @Parameter(property = "fabric8.cluster.capabilityCacheFile", defaultValue = "${user.home}/.fabric8/cluster-capabilities.properties")
+    protected File clusterCapabilityCacheFile;
+
+    /**
+     * Maximum number of requests per second sent to an API server. By default requests are not rate limited.
+     */
+    @Parameter(property = "fabric8.cluster.requestsPerSecond", defaultValue = "0")
+    protected double clusterRequestsPerSecond;
+
+    /**
+     * Number of requests which can be sent at once when rate limiting is enabled
+     */
+    @Parameter(property = "fabric8.cluster.requestBurst", defaultValue = "10")
+    protected int clusterRequestBurst;
+
+    /**
+     * Upper bound for the number of concurrent requests to an API server. The actual limit starts low, grows
+     * as long as the server responds fast and shrinks when the server is throttling or failing. A value of 0
+     * disables the limit.
+     */
+    @Parameter(property = "fabric8.cluster.maxConcurrentRequests", defaultValue = "32")
+    protected int clusterMaxConcurrentRequests;
+
+    /**
+     * How often a request is retried when being throttled by the API server (HTTP 429)
+     */
+    @Parameter(property = "fabric8.cluster.maxRetries", defaultValue = "3")
+    protected int clusterMaxRetries;
+
     // Used for determining which mojos are called during a run
     @Component
     protected GoalFinder goalFinder;
@@ -71,7 +114,32 @@ public abstract class AbstractFabric8Mojo extends AbstractMojo {
             return;
         }
         log = createLogger(" ");
-        executeInternal();
+        ClusterAccess.configureCapabilityCache(clusterCapabilityCacheFile, clusterCapabilityCacheTtl);
+        ClusterAccess.configureRequestLimits(clusterRequestsPerSecond, clusterRequestBurst,
+                                             clusterMaxConcurrentRequests, clusterMaxRetries);
+        KubernetesClientPool pool = KubernetesClientPool.getInstance();
+        try {
+            // Clients acquired by this goal, its enrichers and services are released when it is done
+            try (KubernetesClientPool.Scope scope = pool.openScope()) {
+                executeInternal();
+            }
+        } finally {
+            closeClientsAtSessionEnd(pool);
+        }
+    }
+
+    // Close the idle connections shared by all cluster clients when no other project of the session is left to run.
+    // Further goals of this project just open new connections, requests still running are not interrupted.
+    private void closeClientsAtSessionEnd(KubernetesClientPool pool) {
+        if (session == null || session.getResult() == null || session.getProjects() == null) {
+            return;
+        }
+        for (MavenProject other : session.getProjects()) {
+            if (other != project && session.getResult().getBuildSummary(other) == null) {
+                return;
+            }
+        }
+        pool.closeIdle();
     }
 
     public abstract void executeInternal() throws MojoExecutionException, MojoFailureException;
@@ -17,12 +17,14 @@ package io.fabric8.maven.plugin.mojo.build;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 import io.fabric8.kubernetes.api.KubernetesHelper;
 import io.fabric8.kubernetes.api.model.HasMetadata;
 import io.fabric8.kubernetes.api.model.KubernetesList;
 import io.fabric8.maven.core.util.KubernetesResourceUtil;
+import io.fabric8.maven.core.util.ResourceCache;
 import io.fabric8.maven.core.util.ResourceClassifier;
 import io.fabric8.maven.core.util.ResourceFileType;
 import io.fabric8.maven.docker.util.Logger;
@@ -52,9 +54,19 @@ public abstract class AbstractResourceMojo extends AbstractFabric8Mojo {
      */
     @Parameter(property = "fabric8.resourceType")
     private ResourceFileType resourceFileType = yaml;
+
+    /**
+     * Whether to write the items of the generated YAML manifests as separate documents (separated by <code>---</code>)
+     * instead of a single <code>List</code> object. JSON manifests always contain a single list.
+     */
+    @Parameter(property = "fabric8.resource.multiDocument", defaultValue = "false")
+    private boolean multiDocument;
     @Component
     private MavenProjectHelper projectHelper;
 
+    // All artifacts attached during this execution
+    private List<ResourceCache.Artifact> attachedArtifacts = new ArrayList<>();
+
     /**
      * Returns the Template if the list contains a single Template only otherwise returns null
      */
@@ -76,30 +88,62 @@ public abstract class AbstractResourceMojo extends AbstractFabric8Mojo {
         // write kubernetes.yml / openshift.yml
         File resourceFileBase = new File(this.targetDir, classifier.getValue());
 
-        File file = writeResourcesIndividualAndComposite(resources, resourceFileBase, this.resourceFileType, log);
+        File file = writeResourcesIndividualAndComposite(resources, resourceFileBase, this.resourceFileType, multiDocument, log);
 
         // Attach it to the Maven reactor so that it will also get deployed
-        projectHelper.attachArtifact(project, this.resourceFileType.getArtifactType(), classifier.getValue(), file);
+        attachArtifact(this.resourceFileType.getArtifactType(), classifier.getValue(), file);
 
         // TODO: Remove the following block when devops and other apps used by gofabric8 are migrated
         // to fmp-v3. See also https://github.com/fabric8io/fabric8-maven-plugin/issues/167
         if (this.resourceFileType.equals(yaml)) {
             // lets generate JSON too to aid migration from version 2.x to 3.x for packaging templates
-            file = writeResource(resourceFileBase, resources, json);
+            file = writeResource(resourceFileBase, resources, json, false);
 
             // Attach it to the Maven reactor so that it will also get deployed
-            projectHelper.attachArtifact(project, json.getArtifactType(), classifier.getValue(), file);
+            attachArtifact(json.getArtifactType(), classifier.getValue(), file);
+        }
+    }
+
+    /**
+     * Attach artifacts which have been generated by a previous run again to the project
+     *
+     * @param artifacts artifacts to attach
+     */
+    protected void reattachArtifacts(List<ResourceCache.Artifact> artifacts) {
+        for (ResourceCache.Artifact artifact : artifacts) {
+            attachArtifact(artifact.getType(), artifact.getClassifier(), artifact.getFile());
         }
     }
 
+    protected List<ResourceCache.Artifact> getAttachedArtifacts() {
+        return attachedArtifacts;
+    }
+
+    protected ResourceFileType getResourceFileType() {
+        return resourceFileType;
+    }
+
+    protected boolean isMultiDocument() {
+        return multiDocument;
+    }
+
+    private void attachArtifact(String type, String classifier, File file) {
+        projectHelper.attachArtifact(project, type, classifier, file);
+        attachedArtifacts.add(new ResourceCache.Artifact(type, classifier, file));
+    }
+
     public static File writeResourcesIndividualAndComposite(KubernetesList resources, File resourceFileBase, ResourceFileType resourceFileType, Logger log) throws MojoExecutionException {
+        return writeResourcesIndividualAndComposite(resources, resourceFileBase, resourceFileType, false, log);
+    }
+
+    public static File writeResourcesIndividualAndComposite(KubernetesList resources, File resourceFileBase, ResourceFileType resourceFileType, boolean multiDocument, Logger log) throws MojoExecutionException {
         Object entity = resources;
         // if the list contains a single Template lets unwrap it
         Template template = getSingletonTemplate(resources);
         if (template != null) {
             entity = template;
         }
-        File file = writeResource(resourceFileBase, entity, resourceFileType);
+        File file = writeResource(resourceFileBase, entity, resourceFileType, multiDocument);
 
         // write separate files, one for each resource item
         writeIndividualResources(resources, resourceFileBase, resourceFileType, log);
@@ -115,13 +159,13 @@ public abstract class AbstractResourceMojo extends AbstractFabric8Mojo {
             }
             String itemFile = KubernetesResourceUtil.getNameWithSuffix(name, item.getKind());
             File itemTarget = new File(targetDir, itemFile);
-            writeResource(itemTarget, item, resourceFileType);
+            writeResource(itemTarget, item, resourceFileType, false);
         }
     }
 
-    private static File writeResource(File resourceFileBase, Object entity, ResourceFileType resourceFileType) throws MojoExecutionException {
+    private static File writeResource(File resourceFileBase, Object entity, ResourceFileType resourceFileType, boolean multiDocument) throws MojoExecutionException {
         try {
-            return KubernetesResourceUtil.writeResource(entity, resourceFileBase, resourceFileType);
+            return KubernetesResourceUtil.writeResource(entity, resourceFileBase, resourceFileType, multiDocument);
         } catch (IOException e) {
             throw new MojoExecutionException("Failed to write resource to " + resourceFileBase + ". " + e, e);
         }
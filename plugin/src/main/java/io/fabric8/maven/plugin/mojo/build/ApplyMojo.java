@@ -20,21 +20,34 @@ import java.io.File;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import io.fabric8.kubernetes.api.Annotations;
 import io.fabric8.kubernetes.api.Controller;
 import io.fabric8.kubernetes.api.KubernetesHelper;
-import io.fabric8.kubernetes.api.model.DoneableService;
 import io.fabric8.kubernetes.api.model.HasMetadata;
 import io.fabric8.kubernetes.api.model.Pod;
 import io.fabric8.kubernetes.api.model.ReplicationController;
 import io.fabric8.kubernetes.api.model.Service;
 import io.fabric8.kubernetes.api.model.ServicePort;
+import io.fabric8.kubernetes.api.model.ServiceList;
 import io.fabric8.kubernetes.api.model.ServiceSpec;
 import io.fabric8.kubernetes.api.model.extensions.HTTPIngressPath;
 import io.fabric8.kubernetes.api.model.extensions.HTTPIngressPathBuilder;
@@ -47,9 +60,13 @@ import io.fabric8.kubernetes.api.model.extensions.IngressRule;
 import io.fabric8.kubernetes.api.model.extensions.IngressSpec;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.KubernetesClientException;
-import io.fabric8.kubernetes.client.dsl.Resource;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
 import io.fabric8.maven.core.access.ClusterAccess;
+import io.fabric8.maven.core.access.ClusterResourceIndex;
+import io.fabric8.maven.core.access.IndexedController;
 import io.fabric8.maven.core.service.Fabric8ServiceHub;
+import io.fabric8.maven.core.util.Constants;
 import io.fabric8.maven.core.util.KubernetesResourceUtil;
 import io.fabric8.maven.docker.util.Logger;
 import io.fabric8.maven.plugin.mojo.AbstractFabric8Mojo;
@@ -65,6 +82,7 @@ import io.fabric8.utils.Strings;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugin.logging.Log;
@@ -206,8 +224,39 @@ public class ApplyMojo extends AbstractFabric8Mojo {
     @Parameter(property = "fabric8.s2i.buildNameSuffix", defaultValue = "-s2i")
     protected String s2iBuildNameSuffix;
 
+    /**
+     * Number of resources to apply concurrently. Resources are then applied in tiers, one after another:
+     * namespaces, custom resource definitions, service accounts, secrets and config maps, volume claims,
+     * services and finally controllers and routes. A value of 1 applies all resources sequentially.
+     */
+    @Parameter(property = "fabric8.deploy.parallelism", defaultValue = "1")
+    private int applyParallelism;
+
+    /**
+     * Whether to skip resources which didn't change since they have been applied the last time. When enabled,
+     * each applied resource is annotated with a hash of its content which is compared with the hash of the live
+     * resource. Changes made directly in the cluster are not detected, so such resources are not reset to the
+     * manifest.
+     */
+    @Parameter(property = "fabric8.deploy.skipUnchanged", defaultValue = "false")
+    private boolean skipUnchanged;
+
+    /**
+     * Whether to fetch the live state of all resources with a single request per kind before applying them,
+     * instead of looking up every single resource. Unchanged resources are skipped and missing ones are created
+     * without any further lookup. Changed resources are replaced directly, except for ReplicationControllers,
+     * Pods, BuildConfigs and ImageStreams, which are still looked up once more because their update logic
+     * can't be given the prefetched state. Goals which don't apply resources, like <code>fabric8:undeploy</code>,
+     * don't prefetch anything.
+     */
+    @Parameter(property = "fabric8.deploy.prefetch", defaultValue = "true")
+    private boolean prefetch;
+
     private ClusterAccess clusterAccess;
 
+    // Live state of the resources to apply, null if not prefetched
+    private ClusterResourceIndex resourceIndex;
+
     private Route createRouteForService(String routeDomainPostfix, String namespace, Service service) {
         Route route = null;
         String id = KubernetesHelper.getName(service);
@@ -379,7 +428,6 @@ public class ApplyMojo extends AbstractFabric8Mojo {
             controller.setNamespace(namespace);
 
             Set<HasMetadata> entities = KubernetesResourceUtil.loadResources(manifest);
-
             if (createExternalUrls) {
                 if (controller.getOpenShiftClientOrNull() != null) {
                     createRoutes(controller, entities);
@@ -399,19 +447,24 @@ public class ApplyMojo extends AbstractFabric8Mojo {
     }
 
     protected void applyEntities(Controller controller, KubernetesClient kubernetes, String namespace, String fileName, Set<HasMetadata> entities) throws Exception {
+        if (prefetch) {
+            resourceIndex = prefetchResources(kubernetes, namespace, entities);
+            if (controller instanceof IndexedController) {
+                ((IndexedController) controller).setResourceIndex(resourceIndex);
+            }
+        }
+
+        Set<HasMetadata> changedEntities = entities;
+        if (skipUnchanged) {
+            changedEntities = stampAndFilterUnchanged(kubernetes, namespace, entities);
+        }
+
         // Apply all items
-        for (HasMetadata entity : entities) {
-            if (entity instanceof Pod) {
-                Pod pod = (Pod) entity;
-                controller.applyPod(pod, fileName);
-            } else if (entity instanceof Service) {
-                Service service = (Service) entity;
-                controller.applyService(service, fileName);
-            } else if (entity instanceof ReplicationController) {
-                ReplicationController replicationController = (ReplicationController) entity;
-                controller.applyReplicationController(replicationController, fileName);
-            } else if (entity != null) {
-                controller.apply(entity, fileName);
+        if (applyParallelism > 1 && changedEntities.size() > 1) {
+            applyEntitiesInTiers(controller, fileName, changedEntities);
+        } else {
+            for (HasMetadata entity : changedEntities) {
+                applyEntity(controller, fileName, entity);
             }
         }
 
@@ -419,36 +472,206 @@ public class ApplyMojo extends AbstractFabric8Mojo {
         log.info("[[B]]HINT:[[B]] Use the command `%s get pods -w` to watch your pods start up", command);
 
         Logger serviceLogger = createExternalProcessLogger("[[G]][SVC][[G]] ");
-        long serviceUrlWaitTimeSeconds = this.serviceUrlWaitTimeSeconds;
+        List<Service> services = new ArrayList<>();
         for (HasMetadata entity : entities) {
             if (entity instanceof Service) {
-                Service service = (Service) entity;
+                services.add((Service) entity);
+            }
+        }
+        if (!services.isEmpty()) {
+            Map<String, String> urls = resolveServiceUrls(kubernetes, namespace, services);
+            for (Service service : services) {
                 String name = getName(service);
-                Resource<Service, DoneableService> serviceResource = kubernetes.services().inNamespace(namespace).withName(name);
-                String url = null;
-                // lets wait a little while until there is a service URL in case the exposecontroller is running slow
-                for (int i = 0; i < serviceUrlWaitTimeSeconds; i++) {
-                    if (i > 0) {
-                        Thread.sleep(1000);
+                String url = urls.get(name);
+                if (Strings.isNotBlank(url) && url.startsWith("http")) {
+                    serviceLogger.info("" + name + ": " + url);
+                }
+            }
+        }
+    }
+
+    // Look up the external URLs of the given services. A single watch on the services of the namespace
+    // waits until all exposed services got their URL (in case the exposecontroller is running slow),
+    // but no longer than serviceUrlWaitTimeSeconds.
+    private Map<String, String> resolveServiceUrls(KubernetesClient kubernetes, String namespace, List<Service> services)
+        throws InterruptedException {
+        final Map<String, String> urls = new ConcurrentHashMap<>();
+        final Set<String> pending = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        for (Service service : services) {
+            if (isExposeService(service)) {
+                pending.add(getName(service));
+            }
+        }
+        final CountDownLatch latch = new CountDownLatch(1);
+        Watcher<Service> watcher = new Watcher<Service>() {
+            @Override
+            public void eventReceived(Action action, Service service) {
+                if (action != Action.DELETED) {
+                    updateServiceUrl(service, urls, pending, latch);
+                }
+            }
+
+            @Override
+            public void onClose(KubernetesClientException cause) {
+                if (cause != null) {
+                    log.debug("Service watch closed: %s", cause.getMessage());
+                }
+                latch.countDown();
+            }
+        };
+
+        Watch watch = pending.isEmpty() ? null : kubernetes.services().inNamespace(namespace).watch(watcher);
+        try {
+            // Check the current state after the watch has been opened, so that no update is missed
+            ServiceList current = kubernetes.services().inNamespace(namespace).list();
+            Set<String> names = new HashSet<>();
+            for (Service service : services) {
+                names.add(getName(service));
+            }
+            if (current != null && current.getItems() != null) {
+                for (Service service : current.getItems()) {
+                    if (names.contains(getName(service))) {
+                        updateServiceUrl(service, urls, pending, latch);
                     }
-                    Service s = serviceResource.get();
-                    if (s != null) {
-                        url = getExternalServiceURL(s);
-                        if (Strings.isNotBlank(url)) {
-                            break;
+                }
+            }
+            if (watch != null && !pending.isEmpty()) {
+                if (!latch.await(serviceUrlWaitTimeSeconds, TimeUnit.SECONDS)) {
+                    log.debug("No external URL after %d seconds for services %s", serviceUrlWaitTimeSeconds, pending);
+                }
+            }
+        } finally {
+            if (watch != null) {
+                watch.close();
+            }
+        }
+        return urls;
+    }
+
+    private void updateServiceUrl(Service service, Map<String, String> urls, Set<String> pending, CountDownLatch latch) {
+        String name = getName(service);
+        String url = getExternalServiceURL(service);
+        if (Strings.isNotBlank(url)) {
+            urls.put(name, url);
+            if (pending.remove(name) && pending.isEmpty()) {
+                latch.countDown();
+            }
+        }
+    }
+
+    // Fetch the resources of all kinds to apply
+    private ClusterResourceIndex prefetchResources(KubernetesClient kubernetes, String namespace, Set<HasMetadata> entities) {
+        Set<String> kinds = ClusterResourceIndex.getKinds(entities);
+        ClusterResourceIndex index = ClusterResourceIndex.load(kubernetes, namespace, kinds, log);
+        log.verbose("Prefetched live state of %s", kinds);
+        return index;
+    }
+
+    // Annotate all entities with their content hash and return only those which differ from the live resources.
+    // The live resources are listed once per kind.
+    private Set<HasMetadata> stampAndFilterUnchanged(KubernetesClient kubernetes, String namespace, Set<HasMetadata> entities)
+        throws JsonProcessingException {
+        ClusterResourceIndex index = null;
+        if (!recreate) {
+            index = resourceIndex != null ?
+                resourceIndex :
+                ClusterResourceIndex.load(kubernetes, namespace, ClusterResourceIndex.getKinds(entities), log);
+        }
+        Set<HasMetadata> changed = new LinkedHashSet<>();
+        List<String> unchanged = new ArrayList<>();
+        for (HasMetadata entity : entities) {
+            if (entity == null) {
+                continue;
+            }
+            String hash = KubernetesResourceUtil.calculateContentHash(entity);
+            getOrCreateAnnotations(entity).put(Constants.RESOURCE_CONTENT_HASH_ANNOTATION, hash);
+            if (index != null && isUnchanged(index, namespace, entity, hash)) {
+                unchanged.add(KubernetesHelper.getKind(entity) + " " + getName(entity));
+            } else {
+                changed.add(entity);
+            }
+        }
+        if (!unchanged.isEmpty()) {
+            // The hash only tells whether the manifest changed, changes made directly in the cluster are not detected
+            log.info("Skipping %d unchanged resources: same manifest as last applied, not compared with the live state. " +
+                     "Disable fabric8.deploy.skipUnchanged to correct drift", unchanged.size());
+            log.verbose("Unchanged resources: %s", StringUtils.join(unchanged, ", "));
+        }
+        return changed;
+    }
+
+    private boolean isUnchanged(ClusterResourceIndex index, String namespace, HasMetadata entity, String hash) {
+        String entityNamespace = KubernetesHelper.getNamespace(entity);
+        if (Strings.isNotBlank(entityNamespace) && !entityNamespace.equals(namespace)) {
+            return false;
+        }
+        HasMetadata live = index.get(KubernetesHelper.getKind(entity), getName(entity));
+        return live != null && hash.equals(getOrCreateAnnotations(live).get(Constants.RESOURCE_CONTENT_HASH_ANNOTATION));
+    }
+
+    protected void applyEntity(Controller controller, String fileName, HasMetadata entity) throws Exception {
+        if (entity instanceof Pod) {
+            Pod pod = (Pod) entity;
+            controller.applyPod(pod, fileName);
+        } else if (entity instanceof Service) {
+            Service service = (Service) entity;
+            controller.applyService(service, fileName);
+        } else if (entity instanceof ReplicationController) {
+            ReplicationController replicationController = (ReplicationController) entity;
+            controller.applyReplicationController(replicationController, fileName);
+        } else if (entity != null) {
+            controller.apply(entity, fileName);
+        }
+    }
+
+    // Apply the entities tier by tier, the entities of a tier concurrently. A tier is only started
+    // when all entities of the previous tier have been applied.
+    private void applyEntitiesInTiers(final Controller controller, final String fileName, Set<HasMetadata> entities)
+        throws MojoExecutionException {
+        List<List<HasMetadata>> tiers = KubernetesResourceUtil.groupByApplyTier(entities);
+        log.info("Applying %d resources in %d tiers with up to %d in parallel", entities.size(), tiers.size(), applyParallelism);
+        ExecutorService executor = Executors.newFixedThreadPool(applyParallelism);
+        try {
+            for (List<HasMetadata> tier : tiers) {
+                List<Future<Void>> futures = new ArrayList<>();
+                for (final HasMetadata entity : tier) {
+                    futures.add(executor.submit(new Callable<Void>() {
+                        @Override
+                        public Void call() throws Exception {
+                            applyEntity(controller, fileName, entity);
+                            return null;
                         }
-                    }
-                    if (!isExposeService(service)) {
-                        break;
+                    }));
+                }
+                Map<String, Throwable> failures = new LinkedHashMap<>();
+                for (int i = 0; i < tier.size(); i++) {
+                    try {
+                        futures.get(i).get();
+                    } catch (ExecutionException e) {
+                        HasMetadata entity = tier.get(i);
+                        failures.put(KubernetesHelper.getKind(entity) + " " + getName(entity), e.getCause());
                     }
                 }
-
-                // lets not wait for other services
-                serviceUrlWaitTimeSeconds = 1;
-                if (Strings.isNotBlank(url) && url.startsWith("http")) {
-                    serviceLogger.info("" + name + ": " + url);
+                if (!failures.isEmpty()) {
+                    handleApplyFailures(failures);
                 }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while applying resources", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void handleApplyFailures(Map<String, Throwable> failures) throws MojoExecutionException {
+        for (Map.Entry<String, Throwable> entry : failures.entrySet()) {
+            log.error("Failed to apply %s: %s", entry.getKey(), entry.getValue().getMessage());
+        }
+        if (failOnError) {
+            Throwable first = failures.values().iterator().next();
+            throw new MojoExecutionException("Failed to apply " + failures.size() + " resource(s): " +
+                                             StringUtils.join(failures.keySet(), ", "), first);
         }
     }
 
@@ -570,22 +793,23 @@ public class ApplyMojo extends AbstractFabric8Mojo {
         String routeDomainPostfix = this.routeDomain;
         Log log = getLog();
         String namespace = clusterAccess.getNamespace();
-        List<Ingress> ingressList = null;
+        List<Ingress> ingressList = new ArrayList<>();
         // lets get the routes first to see if we should bother
         try {
             IngressList ingresses = kubernetesClient.extensions().ingresses().inNamespace(namespace).list();
-            if (ingresses != null) {
-                ingressList = ingresses.getItems();
+            if (ingresses != null && ingresses.getItems() != null) {
+                ingressList.addAll(ingresses.getItems());
             }
         } catch (Exception e) {
             log.warn("Cannot load Ingress instances. Must be an older version of Kubernetes? Error: " + e, e);
             return;
         }
+        Set<String> servicesWithIngressRule = getServicesWithIngressRule(ingressList);
         List<Ingress> ingresses = new ArrayList<>();
         for (Object object : collection) {
             if (object instanceof Service) {
                 Service service = (Service) object;
-                if (!serviceHasIngressRule(ingressList, service)) {
+                if (!servicesWithIngressRule.contains(KubernetesHelper.getName(service))) {
                     Ingress ingress = createIngressForService(routeDomainPostfix, namespace, service);
                     if (ingress != null) {
                         ingresses.add(ingress);
@@ -603,44 +827,33 @@ public class ApplyMojo extends AbstractFabric8Mojo {
     }
 
     /**
-     * Returns true if there is an existing ingress rule for the given service
+     * Returns the names of all services for which an ingress rule exists
      */
-    private boolean serviceHasIngressRule(List<Ingress> ingresses, Service service) {
-        String serviceName = KubernetesHelper.getName(service);
+    private Set<String> getServicesWithIngressRule(List<Ingress> ingresses) {
+        Set<String> ret = new HashSet<>();
         for (Ingress ingress : ingresses) {
             IngressSpec spec = ingress.getSpec();
-            if (spec == null) {
-                break;
+            if (spec == null || spec.getRules() == null) {
+                continue;
             }
-            List<IngressRule> rules = spec.getRules();
-            if (rules == null) {
-                break;
-            }
-            for (IngressRule rule : rules) {
+            for (IngressRule rule : spec.getRules()) {
                 HTTPIngressRuleValue http = rule.getHttp();
-                if (http == null) {
-                    break;
-                }
-                List<HTTPIngressPath> paths = http.getPaths();
-                if (paths == null) {
-                    break;
+                if (http == null || http.getPaths() == null) {
+                    continue;
                 }
-                for (HTTPIngressPath path : paths) {
+                for (HTTPIngressPath path : http.getPaths()) {
                     IngressBackend backend = path.getBackend();
-                    if (backend == null) {
-                        break;
-                    }
-                    if (Objects.equals(serviceName, backend.getServiceName())) {
-                        return true;
+                    if (backend != null && backend.getServiceName() != null) {
+                        ret.add(backend.getServiceName());
                     }
                 }
             }
         }
-        return false;
+        return ret;
     }
 
     protected Controller createController() {
-        Controller controller = new Controller(clusterAccess.createDefaultClient(log));
+        Controller controller = new IndexedController(clusterAccess.createDefaultClient(log));
         controller.setThrowExceptionOnError(failOnError);
         controller.setRecreateMode(recreate);
         getLog().debug("Using recreate mode: " + recreate);
@@ -36,6 +36,7 @@ import io.fabric8.maven.docker.util.EnvUtil;
 import io.fabric8.maven.docker.util.ImageNameFormatter;
 import io.fabric8.maven.docker.util.Logger;
 import io.fabric8.maven.enricher.api.EnricherContext;
+import io.fabric8.maven.enricher.api.util.GitUtil;
 import io.fabric8.maven.enricher.api.util.InitContainerHandler;
 import io.fabric8.maven.enricher.standard.VolumePermissionEnricher;
 import io.fabric8.maven.generator.api.GeneratorContext;
@@ -60,6 +61,7 @@ import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.shared.filtering.MavenFileFilter;
 import org.apache.maven.shared.filtering.MavenFilteringException;
+import org.eclipse.jgit.api.errors.GitAPIException;
 
 import javax.validation.ConstraintViolationException;
 import java.io.File;
@@ -95,6 +97,14 @@ public class ResourceMojo extends AbstractResourceMojo {
     private static final String DOCKER_MAVEN_PLUGIN_KEY = "io.fabric8:docker-maven-plugin";
     private static final String DOCKER_IMAGE_USER = "docker.image.user";
 
+    // Files of the output directory which are part of the fingerprint for incremental generation
+    private static final FileFilter NON_CLASS_FILES = new FileFilter() {
+        @Override
+        public boolean accept(File file) {
+            return !file.getName().endsWith(".class");
+        }
+    };
+
     @Component(role = MavenFileFilter.class, hint = "default")
     private MavenFileFilter mavenFileFilter;
 
@@ -233,6 +243,41 @@ public class ResourceMojo extends AbstractResourceMojo {
     @Parameter(property = "kompose.dir", defaultValue = "${user.home}/.kompose/bin")
     private File komposeBinDir;
 
+    /**
+     * Whether to skip the generation of the resource descriptors when none of their inputs has changed
+     * since the last run. Inputs are the resource fragments, the enricher, generator and resource configuration,
+     * the resolved images, the project's properties, dependencies and version and the configuration files (but
+     * not the classes) in the output directory. A fingerprint of these inputs is
+     * stored in the working directory. If it matches, the previously generated descriptors are attached again
+     * to the project.
+     */
+    @Parameter(property = "fabric8.resource.incremental", defaultValue = "false")
+    private boolean incremental;
+
+    /**
+     * Number of threads used for parsing resource fragments. With a value larger than 1
+     * fragments are parsed concurrently, the order of the generated resources stays the same.
+     */
+    @Parameter(property = "fabric8.resource.parseThreads", defaultValue = "1")
+    private int parseThreads = 1;
+
+    /**
+     * Whether to record the time spent in each enricher and generator. The timings are written as JSON report
+     * to <code>processor-timings.json</code> in the working directory.
+     */
+    @Parameter(property = "fabric8.resource.timings", defaultValue = "false")
+    private boolean recordTimings;
+
+    /**
+     * Whether to print a summary table of the recorded timings, slowest processor first.
+     * Implies recording of timings.
+     */
+    @Parameter(property = "fabric8.resource.timingsSummary", defaultValue = "false")
+    private boolean printTimingsSummary;
+
+    // Timings of enrichers and generators
+    private ProcessorTimings timings = ProcessorTimings.disabled();
+
     // Access for creating OpenShift binary builds
     private ClusterAccess clusterAccess;
 
@@ -244,6 +289,9 @@ public class ResourceMojo extends AbstractResourceMojo {
     public void executeInternal() throws MojoExecutionException, MojoFailureException {
         clusterAccess = new ClusterAccess(namespace);
 
+        if (recordTimings || printTimingsSummary) {
+            timings = new ProcessorTimings();
+        }
         try {
             lateInit();
 
@@ -251,6 +299,20 @@ public class ResourceMojo extends AbstractResourceMojo {
             resolvedImages = getResolvedImages(images, log);
 
             if (!skip && (!isPomProject() || hasFabric8Dir())) {
+                ResourceCache cache = null;
+                String fingerprint = null;
+                if (incremental) {
+                    cache = new ResourceCache(workDir);
+                    fingerprint = calculateFingerprint();
+                    List<ResourceCache.Artifact> cachedArtifacts = cache.lookup(fingerprint);
+                    if (cachedArtifacts != null) {
+                        log.info("Resource descriptors are up to date, skipping generation");
+                        reattachArtifacts(cachedArtifacts);
+                        return;
+                    }
+                    cache.invalidate();
+                }
+
                 // Extract and generate resources which can be a mix of Kubernetes and OpenShift resources
                 KubernetesList resources = generateResources(resolvedImages);
 
@@ -261,12 +323,85 @@ public class ResourceMojo extends AbstractResourceMojo {
                 // Remove OpenShift specific stuff provided by fragments
                 KubernetesList kubernetesResources = convertToKubernetesResources(resources, openShiftResources);
                 writeResources(kubernetesResources, ResourceClassifier.KUBERNETES);
+
+                if (cache != null) {
+                    cache.store(fingerprint, getAttachedArtifacts());
+                }
             }
+            writeTimings();
         } catch (IOException e) {
             throw new MojoExecutionException("Failed to generate fabric8 descriptor", e);
         }
     }
 
+    private void writeTimings() throws IOException {
+        if (timings.isEnabled()) {
+            File report = new File(workDir, ProcessorTimings.REPORT_FILE);
+            timings.writeReport(report);
+            log.verbose("Processor timings written to %s", report);
+            if (printTimingsSummary) {
+                timings.logSummary(log);
+            }
+        }
+    }
+
+    // Fingerprint over everything which influences the generated resource descriptors
+    private String calculateFingerprint() throws IOException {
+        ResourceCache.Fingerprint fingerprint = new ResourceCache.Fingerprint()
+            .add("pluginVersion", getClass().getPackage().getImplementationVersion())
+            .add("project", project.getId())
+            .add("packaging", project.getPackaging())
+            .add("platformMode", platformMode)
+            .add("buildStrategy", buildStrategy)
+            .add("resourceFileType", getResourceFileType())
+            .add("multiDocument", isMultiDocument())
+            .add("targetDir", targetDir)
+            .add("namespace", namespace)
+            .add("openshiftDeployTimeoutSeconds", openshiftDeployTimeoutSeconds)
+            .add("useProjectClasspath", useProjectClasspath)
+            .add("enricher", extractEnricherConfig())
+            .add("generator", extractGeneratorConfig())
+            .add("resources", resources)
+            .add("images", resolvedImages)
+            .add("composeFile", composeFile)
+            .addProperties("properties", project.getProperties())
+            .addProperties("systemProperties", session.getUserProperties())
+            .addFile("resourceDir", resourceDir)
+            .addFile("resourceDirOpenShiftOverride", resourceDirOpenShiftOverride)
+            .addFile("composeResourceDir", composeResourceDir);
+        if (composeConfigPresent()) {
+            fingerprint.addFile("composeFileContent", buildComposeFilePath().toFile());
+        }
+        List<String> artifacts = new ArrayList<>();
+        for (org.apache.maven.artifact.Artifact artifact : project.getArtifacts()) {
+            File file = artifact.getFile();
+            artifacts.add(artifact.getId() + (file != null ? ":" + file.length() + ":" + file.lastModified() : ""));
+        }
+        fingerprint.add("artifacts", artifacts);
+        // Configuration files read by enrichers from the classpath, like the Spring Boot application.properties.
+        // Classes are left out, so that code changes don't invalidate the cache. The main class found by the
+        // generators is part of the resolved images already.
+        if (project.getBuild() != null && project.getBuild().getOutputDirectory() != null) {
+            fingerprint.addFileStamps("outputDirectoryResources", new File(project.getBuild().getOutputDirectory()),
+                                      NON_CLASS_FILES);
+        }
+        addGitInfo(fingerprint);
+        return fingerprint.getHash();
+    }
+
+    // Branch and commit are added as annotations by the git enricher
+    private void addGitInfo(ResourceCache.Fingerprint fingerprint) {
+        try {
+            GitUtil.GitInfo gitInfo = GitUtil.getGitInfo(project, session);
+            fingerprint.add("gitBranch", gitInfo != null ? gitInfo.getBranch() : null)
+                       .add("gitCommit", gitInfo != null ? gitInfo.getCommitId() : null);
+        } catch (IOException | GitAPIException e) {
+            // Never reuse cached resources when the git state is unknown
+            log.verbose("Cannot read Git information for the resource fingerprint: %s", e);
+            fingerprint.add("gitUnknown", System.nanoTime());
+        }
+    }
+
     private void lateInit() throws MojoExecutionException {
         if (goalFinder.runningWithGoal(project, session, "fabric8:watch") ||
                 goalFinder.runningWithGoal(project, session, "fabric8:watch")) {
@@ -415,7 +550,7 @@ public class ResourceMojo extends AbstractResourceMojo {
         if (resources != null) {
             ctxBuilder.namespace(resources.getNamespace());
         }
-        EnricherManager enricherManager = new EnricherManager(resources, ctxBuilder.build());
+        EnricherManager enricherManager = new EnricherManager(resources, ctxBuilder.build(), timings);
 
         // Generate all resources from the main resource diretory, configuration and enrich them accordingly
         KubernetesListBuilder builder = generateAppResources(images, enricherManager);
@@ -436,7 +571,8 @@ public class ResourceMojo extends AbstractResourceMojo {
                 KubernetesListBuilder builder = KubernetesResourceUtil.readResourceFragmentsFrom(
                         KubernetesResourceUtil.DEFAULT_RESOURCE_VERSIONING,
                         defaultName,
-                        mavenFilterFiles(resourceFiles, this.workDirOpenShiftOverride));
+                        mavenFilterFiles(resourceFiles, this.workDirOpenShiftOverride),
+                        parseThreads);
                 KubernetesList list = builder.build();
                 for (HasMetadata item : list.getItems()) {
                     openShiftOverrideResources.addOpenShiftOverride(item);
@@ -562,7 +698,8 @@ public class ResourceMojo extends AbstractResourceMojo {
         builder = KubernetesResourceUtil.readResourceFragmentsFrom(
             KubernetesResourceUtil.DEFAULT_RESOURCE_VERSIONING,
             defaultName,
-                mavenFilterFiles(resourceFiles, this.workDir));
+                mavenFilterFiles(resourceFiles, this.workDir),
+                parseThreads);
         return builder;
     }
 
@@ -731,7 +868,7 @@ public class ResourceMojo extends AbstractResourceMojo {
                             .strategy(buildStrategy)
                             .useProjectClasspath(useProjectClasspath)
                             .build();
-                        return GeneratorManager.generate(configs, ctx, true);
+                        return GeneratorManager.generate(configs, ctx, true, timings);
                     } catch (Exception e) {
                         throw new IllegalArgumentException("Cannot extract generator: " + e,e);
                     }
@@ -15,8 +15,12 @@
  */
 package io.fabric8.maven.plugin.mojo.develop;
 
+import java.io.File;
+import java.util.regex.Pattern;
+
 import io.fabric8.maven.core.service.PodLogService;
 import io.fabric8.maven.plugin.mojo.build.ApplyMojo;
+import io.fabric8.utils.Strings;
 
 import org.apache.maven.plugins.annotations.Parameter;
 
@@ -30,6 +34,68 @@ public class AbstractTailLogMojo extends ApplyMojo {
     @Parameter(property = "fabric8.log.pod")
     private String podName;
 
+    /**
+     * Whether to follow the logs of all matching pods at the same time instead of only the newest one
+     */
+    @Parameter(property = "fabric8.log.allPods", defaultValue = "false")
+    private boolean followAllPods;
+
+    /**
+     * Number of log lines buffered when following all pods. Further lines are dropped until the
+     * console has caught up.
+     */
+    @Parameter(property = "fabric8.log.queueSize", defaultValue = "10000")
+    private int logQueueSize;
+
+    /**
+     * Regular expression which must be found in a log line for printing it
+     */
+    @Parameter(property = "fabric8.log.include")
+    private String logInclude;
+
+    /**
+     * Regular expression which must not be found in a log line for printing it
+     */
+    @Parameter(property = "fabric8.log.exclude")
+    private String logExclude;
+
+    /**
+     * Maximum number of log lines printed per second. Lines above this limit are suppressed and only counted.
+     * A value of 0 disables the limit.
+     */
+    @Parameter(property = "fabric8.log.maxLinesPerSecond", defaultValue = "0")
+    private int maxLogLinesPerSecond;
+
+    /**
+     * Whether to write the followed logs to files, one per pod and container
+     */
+    @Parameter(property = "fabric8.log.file", defaultValue = "false")
+    private boolean logToFile;
+
+    /**
+     * Directory for the log files
+     */
+    @Parameter(property = "fabric8.log.dir", defaultValue = "${project.build.directory}/fabric8/logs")
+    private File logDir;
+
+    /**
+     * Whether to print the followed logs to the console. Only has an effect when writing log files.
+     */
+    @Parameter(property = "fabric8.log.console", defaultValue = "true")
+    private boolean logToConsole;
+
+    /**
+     * Size in megabytes after which a log file gets rotated
+     */
+    @Parameter(property = "fabric8.log.maxFileSizeMb", defaultValue = "10")
+    private int maxLogFileSizeMb;
+
+    /**
+     * Number of rotated log files to keep per pod and container
+     */
+    @Parameter(property = "fabric8.log.maxFiles", defaultValue = "5")
+    private int maxRotatedLogFiles;
+
     protected PodLogService getLogService() {
         return new PodLogService(getLogServiceContext());
     }
@@ -42,8 +108,21 @@ public class AbstractTailLogMojo extends ApplyMojo {
                 .newPodLog(createLogger("[[C]][NEW][[C]] "))
                 .oldPodLog(createLogger("[[R]][OLD][[R]] "))
                 .s2iBuildNameSuffix(s2iBuildNameSuffix)
+                .followAllPods(followAllPods)
+                .logQueueSize(logQueueSize)
+                .maxLogLinesPerSecond(maxLogLinesPerSecond)
+                .logIncludePattern(compilePattern(logInclude))
+                .logExcludePattern(compilePattern(logExclude))
+                .logDir(logToFile ? logDir : null)
+                .logToConsole(logToConsole)
+                .maxLogFileSize(maxLogFileSizeMb * 1024L * 1024L)
+                .maxRotatedLogFiles(maxRotatedLogFiles)
                 .build();
     }
 
+    private Pattern compilePattern(String regexp) {
+        return Strings.isNotBlank(regexp) ? Pattern.compile(regexp) : null;
+    }
+
 
 }
@@ -21,6 +21,7 @@ import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.maven.plugin.mojo.build.ApplyMojo;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 
 import java.util.Set;
@@ -34,8 +35,24 @@ import static io.fabric8.maven.core.util.KubernetesClientUtil.deleteEntities;
  */
 @Mojo(name = "undeploy", requiresDependencyResolution = ResolutionScope.COMPILE, defaultPhase = LifecyclePhase.INSTALL)
 public class UndeployMojo extends ApplyMojo {
+
+    /**
+     * Number of resources to delete concurrently. With a value greater than 1 resources are deleted in tiers,
+     * one after another: controllers and routes, services, volume claims, secrets and config maps, service
+     * accounts, custom resource definitions and namespaces.
+     */
+    @Parameter(property = "fabric8.undeploy.parallelism", defaultValue = "1")
+    private int deleteParallelism;
+
+    /**
+     * Time in seconds to wait until the deleted resources and their pods are gone. By default the goal returns
+     * as soon as the deletion has been requested.
+     */
+    @Parameter(property = "fabric8.undeploy.waitSeconds", defaultValue = "0")
+    private long deleteWaitSeconds;
+
     @Override
     protected void applyEntities(Controller controller, KubernetesClient kubernetes, String namespace, String fileName, Set<HasMetadata> entities) throws Exception {
-        deleteEntities(kubernetes, namespace, entities, s2iBuildNameSuffix, log);
+        deleteEntities(kubernetes, namespace, entities, s2iBuildNameSuffix, deleteParallelism, deleteWaitSeconds, log);
     }
 }
@@ -47,15 +47,15 @@ public class WatcherManager {
         boolean isOpenshift = KubernetesHelper.isOpenShift(watcherCtx.getKubernetesClient());
         PlatformMode mode = isOpenshift ? PlatformMode.openshift : PlatformMode.kubernetes;
 
-        List<Watcher> watchers =
-            pluginFactory.createServiceObjects("META-INF/fabric8/watcher-default",
+        List<PluginServiceFactory.ServiceHandle<Watcher>> watchers =
+            pluginFactory.createServiceHandles("META-INF/fabric8/watcher-default",
                                                "META-INF/fabric8/fabric8-watcher-default",
                                                "META-INF/fabric8/watcher",
                                                "META-INF/fabric8-watcher");
 
         ProcessorConfig config = watcherCtx.getConfig();
         Logger log = watcherCtx.getLogger();
-        List<Watcher> usableWatchers  = config.prepareProcessors(watchers, "watcher");
+        List<Watcher> usableWatchers  = PluginServiceFactory.getServices(config.prepareProcessors(watchers, "watcher"));
         log.verbose("Watchers:");
         Watcher chosen = null;
         for (Watcher watcher : usableWatchers) {
@@ -19,10 +19,12 @@ package io.fabric8.maven.plugin.enricher;
 import java.util.*;
 
 import io.fabric8.kubernetes.api.model.*;
+import io.fabric8.kubernetes.api.model.extensions.Deployment;
 import io.fabric8.kubernetes.api.model.extensions.ReplicaSet;
 import io.fabric8.maven.core.config.ProcessorConfig;
 import io.fabric8.maven.docker.config.ImageConfiguration;
 import io.fabric8.maven.enricher.api.EnricherContext;
+import io.fabric8.maven.enricher.api.Kind;
 import mockit.Expectations;
 import mockit.Mocked;
 import mockit.integration.junit4.JMockit;
@@ -96,4 +98,62 @@ public class EnricherManagerTest {
         assertNotNull(labels);
         assertEquals("fabric8", labels.get("provider"));
     }
+
+    @Test
+    public void enrichLabelsAndSelectors() {
+        new Expectations() {{
+           context.getConfig(); result = new ProcessorConfig(Arrays.asList("fmp-project"),null,new HashMap<String, TreeMap>());
+        }};
+        EnricherManager manager = new EnricherManager(null, context);
+
+        KubernetesListBuilder builder = new KubernetesListBuilder();
+        builder.addNewServiceItem()
+                 .withNewSpec()
+                   .addNewPort().withPort(8080).endPort()
+                 .endSpec()
+               .endServiceItem()
+               .addNewDeploymentItem()
+                 .withNewSpec()
+                   .withNewTemplate()
+                     .withNewSpec()
+                       .addNewContainer()
+                         .withName("test")
+                         .withImage("busybox")
+                       .endContainer()
+                     .endSpec()
+                   .endTemplate()
+                 .endSpec()
+               .endDeploymentItem();
+        manager.enrich(builder);
+        KubernetesList list = builder.build();
+        assertEquals(2, list.getItems().size());
+
+        Service service = (Service) list.getItems().get(0);
+        assertEquals("fabric8", service.getMetadata().getLabels().get("provider"));
+        assertEquals("fabric8", service.getSpec().getSelector().get("provider"));
+
+        Deployment deployment = (Deployment) list.getItems().get(1);
+        assertEquals("fabric8", deployment.getMetadata().getLabels().get("provider"));
+        assertEquals("fabric8", deployment.getSpec().getTemplate().getMetadata().getLabels().get("provider"));
+        assertEquals("fabric8", deployment.getSpec().getSelector().getMatchLabels().get("provider"));
+    }
+
+    @Test
+    public void extractionIsCachedUntilInvalidated() {
+        final ProcessorConfig config = new ProcessorConfig(Arrays.asList("fmp-project"),null,new HashMap<String, TreeMap>());
+        new Expectations() {{
+           context.getConfig(); result = config;
+        }};
+        EnricherManager manager = new EnricherManager(null, context);
+
+        Map<String, String> selector = manager.extractSelector(config, Kind.SERVICE);
+        assertEquals("fabric8", selector.get("provider"));
+        assertSame(selector, manager.extractSelector(config, Kind.SERVICE));
+        assertNotSame(selector, manager.extractSelector(config, Kind.DEPLOYMENT));
+
+        manager.invalidateExtractionCache();
+        Map<String, String> freshSelector = manager.extractSelector(config, Kind.SERVICE);
+        assertNotSame(selector, freshSelector);
+        assertEquals(selector, freshSelector);
+    }
 }